@@ -0,0 +1,89 @@
+#!/usr/bin/env bash
+# Tiempo hasta la primera peticion atendida (time-to-first-request) con cada
+# configuracion de arranque: por defecto, perfil prod, prod + AOT y
+# prod + AOT + CDS. Cada arranque es un proceso nuevo contra la misma BD H2
+# en fichero (preparada una vez con el perfil por defecto), y la peticion es
+# GET /users?limit=1, que pasa por seguridad, JPA y la BD.
+#
+# Uso: scripts/startup-benchmark.sh [repeticiones]     (por defecto 5)
+#   SKIP_BUILD=1   reutiliza target/*.jar (debe estar construido con -Paot)
+#   BENCH_PORT     puerto (por defecto 18082)
+#   JAVA_OPTS      opciones extra de la JVM para todos los arranques
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${BENCH_PORT:-18082}
+JAVA_OPTS=${JAVA_OPTS:-}
+cd "$(dirname "$0")/.."
+
+WORK=target/startup-benchmark
+DB_URL="jdbc:h2:file:$PWD/$WORK/db/bench"
+URL="http://localhost:$PORT/users?limit=1"
+
+if [ "${SKIP_BUILD:-0}" != "1" ]; then
+    ./mvnw -B -q -Paot -DskipTests package
+fi
+rm -rf "$WORK"
+mkdir -p "$WORK/logs"
+JAR=$(ls target/*.jar | grep -v -- '-plain.jar' | head -n 1)
+java -Djarmode=tools -jar "$JAR" extract --destination "$WORK/app" > /dev/null
+APP_JAR="$WORK/app/$(basename "$JAR")"
+
+# sin keystore ni destino de eventos: clave JWT efimera y outbox en memoria
+APP_ARGS=(--server.port="$PORT" --spring.datasource.url="$DB_URL" --app.outbox.sink=memory
+    --app.jwt.keystore.allow-ephemeral=true)
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# arranca la app, espera a que responda la primera peticion y la para;
+# imprime los ms desde el lanzamiento del proceso
+run_once() {
+    local log=$1
+    shift
+    local start pid
+    start=$(now_ms)
+    java $JAVA_OPTS "$@" -jar "$APP_JAR" "${APP_ARGS[@]}" > "$log" 2>&1 &
+    pid=$!
+    until curl -s -o /dev/null -f "$URL"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "La aplicacion termino sin responder; ver $log" >&2
+            return 1
+        fi
+        sleep 0.01
+    done
+    echo $(( $(now_ms) - start ))
+    kill "$pid"
+    wait "$pid" || true
+}
+
+# esquema (migraciones) y datos iniciales (DataInitializer) con el perfil por defecto
+run_once "$WORK/logs/prepare.log" > /dev/null
+
+# archivo CDS como en el Dockerfile: se entrena con el mismo arranque que se mide
+java -XX:ArchiveClassesAtExit="$WORK/app.jsa" -Dspring.aot.enabled=true -Dspring.profiles.active=prod \
+    -Dspring.context.exit=onRefresh -jar "$APP_JAR" "${APP_ARGS[@]}" > "$WORK/logs/cds-training.log" 2>&1
+
+declare -A MODES=(
+    [1-default]=""
+    [2-prod]="-Dspring.profiles.active=prod"
+    [3-prod-aot]="-Dspring.profiles.active=prod -Dspring.aot.enabled=true"
+    [4-prod-aot-cds]="-Dspring.profiles.active=prod -Dspring.aot.enabled=true -XX:SharedArchiveFile=$WORK/app.jsa"
+)
+
+printf '%-16s %10s %10s %10s   %s\n' modo min_ms mediana_ms max_ms "Started in (mediana)"
+for mode in $(printf '%s\n' "${!MODES[@]}" | sort); do
+    times=()
+    started=()
+    for i in $(seq 1 "$RUNS"); do
+        log="$WORK/logs/$mode-$i.log"
+        # shellcheck disable=SC2086
+        times+=("$(run_once "$log" ${MODES[$mode]})")
+        started+=("$(grep -o 'Started [A-Za-z]* in [0-9.]* seconds' "$log" | awk '{print $4}')")
+    done
+    sorted=($(printf '%s\n' "${times[@]}" | sort -n))
+    started_sorted=($(printf '%s\n' "${started[@]}" | sort -n))
+    printf '%-16s %10s %10s %10s   %ss\n' "${mode#*-}" "${sorted[0]}" "${sorted[$((RUNS / 2))]}" \
+        "${sorted[$((RUNS - 1))]}" "${started_sorted[$((RUNS / 2))]}"
+done
@@ -2,8 +2,10 @@ package com.cotic.backend.usersapp.backend_usersapp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BackendUsersappApplication {
 
 	public static void main(String[] args) {
@@ -1,32 +1,41 @@
 package com.cotic.backend.usersapp.backend_usersapp;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.core.io.ClassPathResource;
-import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.stereotype.Component;
 
 import com.cotic.backend.usersapp.backend_usersapp.repositories.UserRepository;
 
 import javax.sql.DataSource;
 
+/**
+ * Carga {@code data.sql} si {@code app.data.seed.enabled} y la tabla
+ * {@code users} esta vacia. Se comprueba al arrancar (no con una condicion
+ * de bean) para que funcione igual con la build AOT.
+ */
 @Component
 public class DataInitializer implements CommandLineRunner {
 
     private final UserRepository userRepository;
     private final DataSource dataSource;
+    private final boolean enabled;
 
     @Autowired
-    public DataInitializer(UserRepository userRepository, DataSource dataSource) {
+    public DataInitializer(UserRepository userRepository, DataSource dataSource,
+            @Value("${app.data.seed.enabled:true}") boolean enabled) {
         this.userRepository = userRepository;
         this.dataSource = dataSource;
+        this.enabled = enabled;
     }
 
     @Override
     public void run(String... args) throws Exception {
-        if (userRepository.count() == 0) {
-            // Solo ejecuta el script si no hay usuarios
-            ScriptUtils.executeSqlScript(dataSource.getConnection(), new ClassPathResource("data.sql"));
+        if (enabled && userRepository.count() == 0) {
+            // Solo ejecuta el script si no hay usuarios; el populator devuelve la conexion al pool
+            new ResourceDatabasePopulator(new ClassPathResource("data.sql")).execute(dataSource);
         }
     }
 }
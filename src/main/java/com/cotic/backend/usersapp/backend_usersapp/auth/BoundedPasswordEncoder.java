@@ -0,0 +1,41 @@
+package com.cotic.backend.usersapp.backend_usersapp.auth;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Envia {@code encode} y {@code matches} al {@link PasswordHashingExecutor}
+ * en lugar de ejecutarlos en el hilo de la peticion.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final PasswordHashingExecutor executor;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    /**
+     * @return el encoder sin el pool, para quien acota el hashing por su cuenta
+     */
+    public PasswordEncoder getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executor.execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executor.execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // el rehash cuesta otro hash completo: con cola se deja para otro login
+        return delegate.upgradeEncoding(encodedPassword) && !executor.isBusy();
+    }
+}
@@ -0,0 +1,110 @@
+package com.cotic.backend.usersapp.backend_usersapp.auth;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * BCrypt con un coste elegido segun el hardware en lugar de fijo.
+ * <p>
+ * Al arrancar se mide el hash con el coste minimo y se extrapola (cada punto
+ * de coste duplica el tiempo) hasta el mayor coste que no supera la latencia
+ * objetivo. En un cluster conviene fijar el coste ({@code cost > 0}): todas
+ * las replicas usan el mismo y el arranque no mide nada.
+ * <p>
+ * {@link #upgradeEncoding(String)} solo pide rehashear los hashes por debajo
+ * del coste minimo o al menos {@value #UPGRADE_MARGIN} puntos por debajo del
+ * actual; nunca los de coste mayor. La medicion es ruidosa y cada nodo puede
+ * calibrar un coste distinto: con una diferencia de un punto, un usuario que
+ * alterna entre nodos se rehashearia (y escribiria en la BD) en cada login.
+ */
+public class CalibratedBCryptPasswordEncoder implements PasswordEncoder {
+
+    private static final Logger log = LoggerFactory.getLogger(CalibratedBCryptPasswordEncoder.class);
+
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+    private static final int SAMPLES = 5;
+    static final int UPGRADE_MARGIN = 2;
+
+    private final int cost;
+    private final int minCost;
+    private final BCryptPasswordEncoder delegate;
+
+    /**
+     * @param minCost los hashes con un coste menor se rehashean siempre
+     */
+    public CalibratedBCryptPasswordEncoder(int cost, int minCost) {
+        this.cost = cost;
+        this.minCost = minCost;
+        this.delegate = new BCryptPasswordEncoder(cost);
+    }
+
+    /**
+     * @param fixedCost si es mayor que 0 se usa sin medir
+     */
+    public static CalibratedBCryptPasswordEncoder calibrate(Duration targetLatency, int minCost, int maxCost,
+            int fixedCost) {
+        if (fixedCost > 0) {
+            log.info("Coste de BCrypt fijado por configuracion: {}", fixedCost);
+            return new CalibratedBCryptPasswordEncoder(fixedCost, minCost);
+        }
+        long nanos = measure(minCost);
+        int cost = minCost;
+        long estimate = nanos;
+        while (cost < maxCost && estimate * 2 <= targetLatency.toNanos()) {
+            estimate *= 2;
+            cost++;
+        }
+        log.info("Coste de BCrypt calibrado: {} (coste {} = {} ms, estimado {} ms, objetivo {} ms)", cost, minCost,
+                nanos / 1_000_000, estimate / 1_000_000, targetLatency.toMillis());
+        return new CalibratedBCryptPasswordEncoder(cost, minCost);
+    }
+
+    // mediana de varias muestras, tras una vuelta de calentamiento
+    private static long measure(int cost) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(cost);
+        encoder.encode("calibracion");
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibracion");
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        // BCrypt lleva el coste en el propio hash: verifica cualquier coste
+        return delegate.matches(rawPassword, encodedPassword);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        if (!matcher.find()) {
+            return false;
+        }
+        int stored = Integer.parseInt(matcher.group(1));
+        return stored < minCost || stored <= cost - UPGRADE_MARGIN;
+    }
+}
@@ -0,0 +1,269 @@
+package com.cotic.backend.usersapp.backend_usersapp.auth;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+
+/**
+ * Anillo de claves asimetricas (EC o EdDSA) para firmar y verificar los JWT.
+ * <p>
+ * Las claves se leen de un keystore local ({@code app.jwt.keystore.*}): cada
+ * alias es un {@code kid}. Los alias con clave privada pueden firmar; los que
+ * solo tienen certificado se usan unicamente para verificar (claves
+ * retiradas durante una rotacion). Una clave de otro tipo (RSA, por ejemplo)
+ * hace fallar la carga: se publicaria en el JWKS con un {@code alg} que no
+ * le corresponde. Firma el alias
+ * {@code app.jwt.keystore.active-alias} o, si no se indica, la clave privada
+ * mas reciente. El keystore se relee cuando cambia en disco, asi que rotar es
+ * anadir la clave nueva al fichero sin reiniciar. Cada recarga que cambia
+ * las claves publica un {@link JwtKeysReloadedEvent}.
+ * <p>
+ * Sin keystore configurado el arranque falla, salvo que
+ * {@code app.jwt.keystore.allow-ephemeral=true} (solo desarrollo/tests): en
+ * ese caso se genera una clave EC efimera y los tokens no sobreviven a un
+ * reinicio ni se comparten entre replicas.
+ */
+@Component
+@Lazy(false)
+public class JwtKeyRing extends LocatorAdapter<Key> implements ApplicationEventPublisherAware {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+    private final char[] password;
+    private final String type;
+    private final String activeAlias;
+
+    private volatile Snapshot snapshot;
+    private volatile long loadedLastModified;
+    private ApplicationEventPublisher events;
+
+    @Autowired
+    public JwtKeyRing(ResourceLoader resourceLoader,
+            @Value("${app.jwt.keystore.location:}") String location,
+            @Value("${app.jwt.keystore.password:}") String password,
+            @Value("${app.jwt.keystore.type:PKCS12}") String type,
+            @Value("${app.jwt.keystore.active-alias:}") String activeAlias,
+            @Value("${app.jwt.keystore.allow-ephemeral:false}") boolean allowEphemeral) {
+        this.resourceLoader = resourceLoader;
+        this.location = location;
+        this.password = password.toCharArray();
+        this.type = type;
+        this.activeAlias = activeAlias;
+
+        if (location.isBlank()) {
+            if (!allowEphemeral) {
+                throw new IllegalStateException("app.jwt.keystore.location no configurado. Solo en desarrollo se "
+                        + "puede usar una clave efimera con app.jwt.keystore.allow-ephemeral=true");
+            }
+            log.warn("app.jwt.keystore.location no configurado: se usa una clave EC efimera. "
+                    + "Los tokens se invalidan al reiniciar y no son validos entre replicas.");
+            this.snapshot = ephemeral();
+        } else {
+            this.snapshot = load();
+        }
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher events) {
+        this.events = events;
+    }
+
+    /**
+     * Clave privada activa y su {@code kid}, leidas del mismo snapshot.
+     */
+    public SigningKey signingKey() {
+        return snapshot.signingKey();
+    }
+
+    /**
+     * Conjunto JWKS publico ({@code {"keys":[...]}}) con todas las claves de
+     * verificacion vigentes.
+     */
+    public Map<String, Object> jwks() {
+        return snapshot.jwks();
+    }
+
+    /**
+     * Identificador del conjunto de claves actual (para ETag): cambia si
+     * cambia cualquier {@code kid} o el material de cualquier clave publica.
+     */
+    public String version() {
+        return snapshot.version();
+    }
+
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId();
+        return kid != null ? snapshot.verificationKeys().get(kid) : null;
+    }
+
+    /**
+     * Relee el keystore si ha cambiado en disco desde la ultima carga.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.keystore.reload-interval:PT1M}")
+    public void reloadIfModified() {
+        if (location.isBlank()) {
+            return;
+        }
+        try {
+            if (resourceLoader.getResource(location).lastModified() != loadedLastModified) {
+                String previous = snapshot.version();
+                snapshot = load();
+                log.info("Keystore JWT recargado: firma con kid={}, {} clave(s) de verificacion",
+                        snapshot.signingKey().kid(), snapshot.verificationKeys().size());
+                // solo si cambiaron las claves: tocar el fichero sin cambiarlas no vacia caches
+                if (events != null && !previous.equals(snapshot.version())) {
+                    events.publishEvent(new JwtKeysReloadedEvent(snapshot.version()));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // se conserva el snapshot anterior
+            log.error("No se pudo recargar el keystore JWT {}", location, e);
+        }
+    }
+
+    private Snapshot load() {
+        Resource resource = resourceLoader.getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            long lastModified = resource.lastModified();
+            KeyStore keyStore = KeyStore.getInstance(type);
+            keyStore.load(in, password);
+
+            Map<String, PublicKey> verificationKeys = new LinkedHashMap<>();
+            SigningKey signing = null;
+            Date signingCreated = null;
+            for (String alias : Collections.list(keyStore.aliases())) {
+                Certificate certificate = keyStore.getCertificate(alias);
+                if (certificate == null) {
+                    continue;
+                }
+                PublicKey publicKey = certificate.getPublicKey();
+                algorithm(alias, publicKey);
+                verificationKeys.put(alias, publicKey);
+
+                if (!keyStore.isKeyEntry(alias)) {
+                    continue;
+                }
+                Date created = keyStore.getCreationDate(alias);
+                boolean isActive = activeAlias.isBlank()
+                        ? signingCreated == null || (created != null && created.after(signingCreated))
+                        : activeAlias.equals(alias);
+                if (isActive) {
+                    signing = new SigningKey(alias, (PrivateKey) keyStore.getKey(alias, password));
+                    signingCreated = created;
+                }
+            }
+            if (signing == null) {
+                throw new IllegalStateException("El keystore " + location + " no contiene la clave privada "
+                        + (activeAlias.isBlank() ? "de firma" : activeAlias));
+            }
+            loadedLastModified = lastModified;
+            return new Snapshot(signing, verificationKeys);
+        } catch (IOException | java.security.GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo cargar el keystore JWT " + location, e);
+        }
+    }
+
+    private static Snapshot ephemeral() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            KeyPair pair = generator.generateKeyPair();
+            String kid = "ephemeral-" + UUID.randomUUID();
+            return new Snapshot(new SigningKey(kid, pair.getPrivate()), Map.of(kid, pair.getPublic()));
+        } catch (java.security.GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo generar la clave EC efimera", e);
+        }
+    }
+
+    /**
+     * @return el {@code alg} JWS de la clave
+     * @throws IllegalStateException si no es EC ni EdDSA
+     */
+    private static String algorithm(String kid, PublicKey key) {
+        if (key instanceof ECPublicKey ec) {
+            int bits = ec.getParams().getCurve().getField().getFieldSize();
+            return bits <= 256 ? "ES256" : bits <= 384 ? "ES384" : "ES512";
+        }
+        if (key instanceof EdECPublicKey) {
+            return "EdDSA";
+        }
+        throw new IllegalStateException("La clave " + kid + " del keystore JWT es " + key.getAlgorithm()
+                + ": solo se admiten claves EC o EdDSA");
+    }
+
+    public record SigningKey(String kid, PrivateKey privateKey) {
+    }
+
+    private record Snapshot(SigningKey signingKey, Map<String, PublicKey> verificationKeys,
+            Map<String, Object> jwks, String version) {
+
+        Snapshot(SigningKey signingKey, Map<String, PublicKey> verificationKeys) {
+            this(signingKey, Map.copyOf(verificationKeys), toJwks(verificationKeys),
+                    version(verificationKeys));
+        }
+
+        private static String version(Map<String, PublicKey> keys) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                keys.forEach((kid, key) -> {
+                    digest.update(kid.getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 0);
+                    digest.update(key.getEncoded());
+                });
+                return HexFormat.of().formatHex(digest.digest(), 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static Map<String, Object> toJwks(Map<String, PublicKey> keys) {
+            List<Map<String, ?>> jwks = new ArrayList<>();
+            keys.forEach((kid, key) -> {
+                PublicJwk<?> jwk = Jwks.builder().key(key).id(kid).publicKeyUse("sig").algorithm(algorithm(kid, key))
+                        .build();
+                jwks.add(new LinkedHashMap<>(jwk));
+            });
+            return Map.of("keys", List.copyOf(jwks));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.cotic.backend.usersapp.backend_usersapp.auth;
+
+/**
+ * Evento publicado por {@link JwtKeyRing} cuando relee el keystore y el
+ * conjunto de claves ha cambiado.
+ */
+public class JwtKeysReloadedEvent {
+
+    private final String version;
+
+    public JwtKeysReloadedEvent(String version) {
+        this.version = version;
+    }
+
+    /**
+     * @return el {@link JwtKeyRing#version()} de las claves nuevas
+     */
+    public String getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,114 @@
+package com.cotic.backend.usersapp.backend_usersapp.auth;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+
+/**
+ * Codificador/decodificador de JWT compartido y thread-safe.
+ * <p>
+ * Firma con la clave activa de {@link JwtKeyRing} (header {@code kid}). El
+ * parser y los readers/writers de Jackson (con el mixin
+ * {@link SimpleGrantedAuthorityJsonCreator}) se construyen una sola vez; todos
+ * son inmutables y se pueden usar concurrentemente desde cualquier hilo.
+ */
+@Component
+public class JwtTokenCodec {
+
+    public static final String CLAIM_AUTHORITIES = "authorities";
+    public static final String CLAIM_IS_ADMIN = "isAdmin";
+    public static final String CLAIM_USERNAME = "username";
+
+    private final JwtKeyRing keyRing;
+    private final long accessTokenTtlMillis;
+    private final JwtParser parser;
+    private final ObjectReader authoritiesReader;
+    private final ObjectWriter authoritiesWriter;
+
+    @Autowired
+    public JwtTokenCodec(JwtKeyRing keyRing, @Value("${app.jwt.access-token-ttl:PT15M}") Duration accessTokenTtl) {
+        this.keyRing = keyRing;
+        this.accessTokenTtlMillis = accessTokenTtl.toMillis();
+        // la clave de verificacion se resuelve por el header kid en cada token
+        this.parser = Jwts.parser().keyLocator(keyRing).build();
+
+        ObjectMapper mapper = new ObjectMapper()
+                .addMixIn(SimpleGrantedAuthority.class, SimpleGrantedAuthorityJsonCreator.class);
+        this.authoritiesReader = mapper.readerFor(SimpleGrantedAuthority[].class);
+        this.authoritiesWriter = mapper.writer();
+    }
+
+    /**
+     * Genera y firma el token de acceso (vida corta,
+     * {@code app.jwt.access-token-ttl}) para el usuario autenticado.
+     */
+    public String createToken(String username, Collection<? extends GrantedAuthority> roles)
+            throws JsonProcessingException {
+        boolean isAdmin = roles.stream().anyMatch(r -> r.getAuthority().equals("ROLE_ADMIN"));
+        long now = System.currentTimeMillis();
+        JwtKeyRing.SigningKey signingKey = keyRing.signingKey();
+
+        return Jwts.builder()
+                .header().keyId(signingKey.kid()).and()
+                .id(UUID.randomUUID().toString())
+                .subject(username)
+                .claim(CLAIM_AUTHORITIES, authoritiesWriter.writeValueAsString(roles))
+                .claim(CLAIM_IS_ADMIN, isAdmin)
+                .claim(CLAIM_USERNAME, username)
+                .expiration(new Date(now + accessTokenTtlMillis))
+                .issuedAt(new Date(now))
+                .signWith(signingKey.privateKey())
+                .compact();
+    }
+
+    public long getAccessTokenTtlMillis() {
+        return accessTokenTtlMillis;
+    }
+
+    /**
+     * Verifica la firma y la expiracion del token y devuelve sus claims.
+     *
+     * @param token token sin el prefijo {@code Bearer }
+     * @throws JwtException si el token no es valido o ha expirado
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    /**
+     * Decodifica el claim {@code authorities} (JSON) a la lista de roles.
+     */
+    public List<GrantedAuthority> readAuthorities(Claims claims) throws IOException {
+        Object authoritiesClaims = claims.get(CLAIM_AUTHORITIES);
+        SimpleGrantedAuthority[] authorities = authoritiesReader.readValue(authoritiesClaims.toString());
+        return List.<GrantedAuthority>of(authorities);
+    }
+
+    /**
+     * Quita el prefijo {@code Bearer } si esta presente.
+     */
+    public static String stripPrefix(String token) {
+        return token.startsWith(TokenJwtConfig.PREFIX_TOKEN)
+                ? token.substring(TokenJwtConfig.PREFIX_TOKEN.length())
+                : token;
+    }
+}
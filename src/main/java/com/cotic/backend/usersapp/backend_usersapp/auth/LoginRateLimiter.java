@@ -0,0 +1,100 @@
+package com.cotic.backend.usersapp.backend_usersapp.auth;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.cotic.backend.usersapp.backend_usersapp.util.GcraRateLimiter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Limita los intentos de login por IP de origen y por username antes de
+ * buscar el usuario o verificar la contrasena.
+ * <p>
+ * La IP es {@code request.getRemoteAddr()}: detras de un proxy hay que
+ * activar {@code server.forward-headers-strategy} para que sea la del
+ * cliente. Metricas: {@code login.ratelimit.rejected} (tag {@code key=ip|username})
+ * y {@code login.ratelimit.keys}.
+ */
+@Component
+@Lazy(false)
+public class LoginRateLimiter implements MeterBinder {
+
+    private final boolean enabled;
+    private final GcraRateLimiter byIp;
+    private final GcraRateLimiter byUsername;
+
+    private volatile Counter ipRejected;
+    private volatile Counter usernameRejected;
+
+    public LoginRateLimiter(@Value("${app.security.login-rate-limit.enabled:true}") boolean enabled,
+            @Value("${app.security.login-rate-limit.ip.rate:60}") int ipRate,
+            @Value("${app.security.login-rate-limit.ip.period:PT1M}") Duration ipPeriod,
+            @Value("${app.security.login-rate-limit.ip.burst:60}") int ipBurst,
+            @Value("${app.security.login-rate-limit.username.rate:10}") int usernameRate,
+            @Value("${app.security.login-rate-limit.username.period:PT1M}") Duration usernamePeriod,
+            @Value("${app.security.login-rate-limit.username.burst:20}") int usernameBurst,
+            @Value("${app.security.login-rate-limit.max-keys:100000}") int maxKeys) {
+        this.enabled = enabled;
+        this.byIp = new GcraRateLimiter(ipRate, ipPeriod, ipBurst, maxKeys);
+        this.byUsername = new GcraRateLimiter(usernameRate, usernamePeriod, usernameBurst, maxKeys);
+    }
+
+    /**
+     * @return 0 si se admite, o los segundos a esperar (para Retry-After)
+     */
+    public long checkIp(String ip) {
+        if (!enabled || ip == null) {
+            return 0;
+        }
+        long wait = byIp.tryAcquire(ip);
+        if (wait > 0 && ipRejected != null) {
+            ipRejected.increment();
+        }
+        return toSeconds(wait);
+    }
+
+    /**
+     * @return 0 si se admite, o los segundos a esperar (para Retry-After)
+     */
+    public long checkUsername(String username) {
+        if (!enabled || username == null) {
+            return 0;
+        }
+        long wait = byUsername.tryAcquire(username.toLowerCase(Locale.ROOT));
+        if (wait > 0 && usernameRejected != null) {
+            usernameRejected.increment();
+        }
+        return toSeconds(wait);
+    }
+
+    private static long toSeconds(long nanos) {
+        return nanos <= 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + 999_999_999L));
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.login-rate-limit.eviction-interval:PT1M}")
+    public void evictIdle() {
+        byIp.evictIdle();
+        byUsername.evictIdle();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        ipRejected = Counter.builder("login.ratelimit.rejected").tag("key", "ip")
+                .description("Intentos de login rechazados por limite").register(registry);
+        usernameRejected = Counter.builder("login.ratelimit.rejected").tag("key", "username")
+                .description("Intentos de login rechazados por limite").register(registry);
+        Gauge.builder("login.ratelimit.keys", byIp, GcraRateLimiter::size).tag("key", "ip").register(registry);
+        Gauge.builder("login.ratelimit.keys", byUsername, GcraRateLimiter::size).tag("key", "username")
+                .register(registry);
+    }
+}
@@ -0,0 +1,136 @@
+package com.cotic.backend.usersapp.backend_usersapp.auth;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Pool dedicado y acotado para el hashing/verificacion de contrasenas
+ * (BCrypt).
+ * <p>
+ * Asi una rafaga de logins no ocupa todos los nucleos ni todos los hilos de
+ * Tomcat: como mucho {@code threads} hashes en paralelo y {@code queue-capacity}
+ * esperando. Con la cola llena se lanza
+ * {@link PasswordHashingRejectedException} al momento (429 + Retry-After).
+ * <p>
+ * Metricas: {@code password.hashing.queue.depth},
+ * {@code password.hashing.active}, {@code password.hashing.wait} (tiempo en
+ * cola), {@code password.hashing.duration} y
+ * {@code password.hashing.rejected}.
+ */
+@Component
+public class PasswordHashingExecutor implements MeterBinder, DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+
+    private volatile Timer waitTimer;
+    private volatile Timer durationTimer;
+    private volatile Counter rejected;
+
+    public PasswordHashingExecutor(@Value("${app.security.password-hashing.threads:0}") int threads,
+            @Value("${app.security.password-hashing.queue-capacity:64}") int queueCapacity) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "password-hashing-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        // hasta que Spring registre las metricas
+        SimpleMeterRegistry local = new SimpleMeterRegistry();
+        this.waitTimer = local.timer("password.hashing.wait");
+        this.durationTimer = local.timer("password.hashing.duration");
+        this.rejected = local.counter("password.hashing.rejected");
+    }
+
+    /**
+     * Ejecuta la operacion en el pool y espera su resultado.
+     *
+     * @throws PasswordHashingRejectedException si la cola esta llena
+     */
+    public <T> T execute(Supplier<T> operation) {
+        long enqueued = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                waitTimer.record(start - enqueued, TimeUnit.NANOSECONDS);
+                try {
+                    return operation.get();
+                } finally {
+                    durationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException(retryAfterSeconds());
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando el hash de la contrasena", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return true si hay operaciones esperando en la cola
+     */
+    public boolean isBusy() {
+        return !executor.getQueue().isEmpty();
+    }
+
+    /**
+     * Estimacion de cuanto tarda en vaciarse la cola actual.
+     */
+    long retryAfterSeconds() {
+        double meanMillis = durationTimer.mean(TimeUnit.MILLISECONDS);
+        double drainMillis = meanMillis * (executor.getQueue().size() + threads) / threads;
+        return Math.max(1, (long) Math.ceil(drainMillis / 1000));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Operaciones de hash esperando en cola").register(registry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Operaciones de hash en ejecucion").register(registry);
+        waitTimer = Timer.builder("password.hashing.wait").description("Tiempo en cola antes de hashear")
+                .register(registry);
+        durationTimer = Timer.builder("password.hashing.duration").description("Tiempo de hash/verificacion")
+                .register(registry);
+        rejected = Counter.builder("password.hashing.rejected").description("Operaciones rechazadas (429)")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
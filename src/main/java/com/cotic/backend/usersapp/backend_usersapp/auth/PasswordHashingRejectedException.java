@@ -0,0 +1,19 @@
+package com.cotic.backend.usersapp.backend_usersapp.auth;
+
+/**
+ * La cola de {@link PasswordHashingExecutor} esta llena: se debe responder 429
+ * con {@code Retry-After} en lugar de esperar.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingRejectedException(long retryAfterSeconds) {
+        super("Servicio saturado, reintente en " + retryAfterSeconds + " segundo(s)");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
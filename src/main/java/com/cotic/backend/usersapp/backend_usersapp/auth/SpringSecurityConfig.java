@@ -1,8 +1,10 @@
 package com.cotic.backend.usersapp.backend_usersapp.auth;
 
+import java.time.Duration;
 import java.util.Arrays;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,7 +15,6 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
@@ -23,23 +24,47 @@ import org.springframework.web.filter.CorsFilter;
 
 import com.cotic.backend.usersapp.backend_usersapp.auth.filters.JwtAuthenticationFilter;
 import com.cotic.backend.usersapp.backend_usersapp.auth.filters.JwtValidationFilter;
+import com.cotic.backend.usersapp.backend_usersapp.services.RefreshTokenService;
+import com.cotic.backend.usersapp.backend_usersapp.services.TokenRevocationService;
 import com.cotic.backend.usersapp.backend_usersapp.util.Constantes;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.validation.constraints.NotNull;
 
 @Configuration
 public class SpringSecurityConfig {
 
     private final AuthenticationConfiguration authenticationConfiguration;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final JwtTokenCodec jwtTokenCodec;
+    private final TokenRevocationService tokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginRateLimiter loginRateLimiter;
 
     @Autowired
-    public SpringSecurityConfig(AuthenticationConfiguration authenticationConfiguration) {
+    public SpringSecurityConfig(AuthenticationConfiguration authenticationConfiguration,
+            VerifiedTokenCache verifiedTokenCache, JwtTokenCodec jwtTokenCodec,
+            TokenRevocationService tokenRevocationService, RefreshTokenService refreshTokenService,
+            LoginRateLimiter loginRateLimiter) {
         this.authenticationConfiguration = authenticationConfiguration;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.jwtTokenCodec = jwtTokenCodec;
+        this.tokenRevocationService = tokenRevocationService;
+        this.refreshTokenService = refreshTokenService;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    PasswordEncoder passwordEncoder(PasswordHashingExecutor passwordHashingExecutor,
+            @Value("${app.security.password-hashing.target-latency:PT0.25S}") Duration targetLatency,
+            @Value("${app.security.password-hashing.min-cost:10}") int minCost,
+            @Value("${app.security.password-hashing.max-cost:16}") int maxCost,
+            @Value("${app.security.password-hashing.cost:0}") int fixedCost) {
+        // BCrypt fuera de los hilos de Tomcat, en un pool acotado, con el coste
+        // calibrado para este nodo
+        return new BoundedPasswordEncoder(
+                CalibratedBCryptPasswordEncoder.calibrate(targetLatency, minCost, maxCost, fixedCost),
+                passwordHashingExecutor);
     }
 
     @Bean
@@ -51,6 +76,11 @@ public class SpringSecurityConfig {
     SecurityFilterChain securityFilterChain(@NotNull HttpSecurity security) throws Exception {
         return security.authorizeHttpRequests((authorizeRequests) -> authorizeRequests
 
+                // el dispatch asincrono (StreamingResponseBody, DeferredResult) ya se
+                // autorizo en la peticion original; sin sesion no hay contexto que
+                // restaurar
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                 // =================================================================
                 // 1. CONFIGURACIÓN DE ACTUATOR
                 // =================================================================
@@ -58,6 +88,8 @@ public class SpringSecurityConfig {
                 // .requestMatchers("/actuator/health", "/actuator/info").permitAll()
                 // Restringe todos los demás endpoints de Actuator al rol ADMIN
                 // .requestMatchers("/actuator/**").hasRole(Constantes.ADMIN)
+                // la recarga de roles (POST) cambia estado: solo ADMIN, antes de la regla general
+                .requestMatchers("/actuator/roles").hasRole(Constantes.ADMIN)
                 .requestMatchers("/actuator/**").permitAll()
                 // =================================================================
 
@@ -65,9 +97,14 @@ public class SpringSecurityConfig {
                 .requestMatchers("/swagger-ui/**", "/swagger-ui.html", "/swagger-ui-custom.html", "/api-docs/**",
                         "/v3/api-docs/**", "/webjars/**")
                 .permitAll()
+                // Public keys (JWKS) so other services can verify tokens locally
+                .requestMatchers(HttpMethod.GET, "/.well-known/jwks.json").permitAll()
                 // Allow public access to token validation endpoint
-                .requestMatchers(HttpMethod.POST, "/users/validate-token").permitAll()
+                .requestMatchers(HttpMethod.POST, "/users/validate-token", "/users/validate-tokens").permitAll()
                 .requestMatchers(HttpMethod.GET, "/users").permitAll()
+                // exportacion, busqueda y feed de cambios del directorio, antes de la regla de /users/{id}
+                .requestMatchers(HttpMethod.GET, "/users/export", "/users/search", "/users/changes")
+                .hasRole(Constantes.ADMIN)
                 .requestMatchers(HttpMethod.GET, Constantes.USER_ID).hasAnyRole(Constantes.USER, Constantes.ADMIN)// se
                                                                                                                   // omite
                 // la
@@ -77,10 +114,14 @@ public class SpringSecurityConfig {
                 .requestMatchers("/users/**").hasRole(Constantes.ADMIN)// acceso a cualquier ruta para el role ADMIN
                 .requestMatchers(HttpMethod.DELETE, Constantes.USER_ID).hasRole(Constantes.ADMIN)
                 .requestMatchers(HttpMethod.PUT, Constantes.USER_ID).hasRole(Constantes.ADMIN)
+                .requestMatchers(HttpMethod.POST, "/auth/refresh").permitAll()
+                .requestMatchers(HttpMethod.POST, "/auth/revoke/**").hasRole(Constantes.ADMIN)
                 .requestMatchers("/h2-console/**").permitAll()
                 .anyRequest().authenticated())
-                .addFilter(new JwtAuthenticationFilter(authenticationConfiguration.getAuthenticationManager()))
-                .addFilter(new JwtValidationFilter(authenticationConfiguration.getAuthenticationManager()))
+                .addFilter(new JwtAuthenticationFilter(authenticationConfiguration.getAuthenticationManager(),
+                        jwtTokenCodec, refreshTokenService, loginRateLimiter))
+                .addFilter(new JwtValidationFilter(authenticationConfiguration.getAuthenticationManager(),
+                        verifiedTokenCache, jwtTokenCodec, tokenRevocationService))
                 .csrf(AbstractHttpConfigurer::disable)
                 .headers(headers -> headers.frameOptions().disable())
                 .sessionManagement(
@@ -0,0 +1,176 @@
+package com.cotic.backend.usersapp.backend_usersapp.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache acotada de tokens JWT ya verificados.
+ * <p>
+ * La clave es el SHA-256 del token (no se retiene el token en memoria) y el
+ * valor son los claims ya leidos e inmutables (usuario, roles, jti/iat para
+ * comprobar la revocacion); cada peticion recibe su propia autenticacion.
+ * Cada entrada expira, como muy tarde, en el {@code exp} del token.
+ * <p>
+ * Cuando {@link JwtKeyRing} recarga claves distintas se vacia entera: un
+ * token firmado con una clave retirada no debe seguir aceptandose desde la
+ * cache hasta su {@code max-ttl}.
+ * <p>
+ * Las estadisticas (hit/miss/evictions) se publican en Micrometer bajo el
+ * nombre {@code cache} con tag {@code cache=jwt.verified-tokens}.
+ */
+@Component
+public class VerifiedTokenCache implements MeterBinder {
+
+    public static final String CACHE_NAME = "jwt.verified-tokens";
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    });
+
+    private final Cache<String, VerifiedToken> cache;
+    private final long maxTtlNanos;
+
+    public VerifiedTokenCache(@Value("${app.security.token-cache.max-size:10000}") long maxSize,
+            @Value("${app.security.token-cache.max-ttl:PT5M}") Duration maxTtl) {
+        this.maxTtlNanos = maxTtl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        return value.remainingNanos(System.currentTimeMillis(), maxTtlNanos);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime,
+                            long currentDuration) {
+                        return value.remainingNanos(System.currentTimeMillis(), maxTtlNanos);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return el token verificado cacheado, o null si no esta (o ya expiro)
+     */
+    public VerifiedToken get(String token) {
+        return cache.getIfPresent(digest(token));
+    }
+
+    /**
+     * Guarda un token recien verificado. La entrada vive hasta su
+     * {@code expiration} o {@code max-ttl}, lo que ocurra primero.
+     */
+    public void put(String token, VerifiedToken verified) {
+        if (verified.expiration() != null && verified.expiration().getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        cache.put(digest(token), verified);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @EventListener
+    public void onKeysReloaded(JwtKeysReloadedEvent event) {
+        invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    private static String digest(String token) {
+        MessageDigest md = SHA_256.get();
+        md.reset();
+        return Base64.getEncoder().withoutPadding()
+                .encodeToString(md.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Claims de un token verificado: lo necesario para autenticar y
+     * comprobar la revocacion sin volver a parsear el token. Es inmutable
+     * porque lo comparten peticiones concurrentes.
+     */
+    public record VerifiedToken(String username, List<GrantedAuthority> authorities, String jti, Date issuedAt,
+            Date expiration) {
+
+        public VerifiedToken {
+            authorities = List.copyOf(authorities);
+            issuedAt = copy(issuedAt);
+            expiration = copy(expiration);
+        }
+
+        /**
+         * Autenticacion nueva para la peticion en curso: quien la modifique
+         * ({@code setDetails}, {@code eraseCredentials}) no afecta a otras.
+         */
+        public UsernamePasswordAuthenticationToken authentication() {
+            return UsernamePasswordAuthenticationToken.authenticated(username, null, authorities);
+        }
+
+        @Override
+        public Date issuedAt() {
+            return copy(issuedAt);
+        }
+
+        @Override
+        public Date expiration() {
+            return copy(expiration);
+        }
+
+        private static Date copy(Date date) {
+            return date == null ? null : new Date(date.getTime());
+        }
+
+        long remainingNanos(long nowMillis, long maxTtlNanos) {
+            if (expiration == null) {
+                return maxTtlNanos;
+            }
+            long remaining = TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiration.getTime() - nowMillis));
+            return Math.min(remaining, maxTtlNanos);
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.cotic.backend.usersapp.backend_usersapp.auth.filters;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -14,14 +16,18 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import com.cotic.backend.usersapp.backend_usersapp.auth.JwtTokenCodec;
+import com.cotic.backend.usersapp.backend_usersapp.auth.LoginRateLimiter;
+import com.cotic.backend.usersapp.backend_usersapp.auth.PasswordHashingRejectedException;
 import com.cotic.backend.usersapp.backend_usersapp.auth.TokenJwtConfig;
 import com.cotic.backend.usersapp.backend_usersapp.models.entities.User;
+import com.cotic.backend.usersapp.backend_usersapp.services.RefreshTokenService;
 import com.fasterxml.jackson.core.exc.StreamReadException;
 import com.fasterxml.jackson.databind.DatabindException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -29,10 +35,23 @@ import jakarta.servlet.http.HttpServletResponse;
 
 public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader USER_READER = MAPPER.readerFor(User.class);
+    private static final ObjectWriter JSON_WRITER = MAPPER.writer();
+
     private AuthenticationManager authenticationManager;
+    private final JwtTokenCodec tokenCodec;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginRateLimiter rateLimiter;
 
-    public JwtAuthenticationFilter(AuthenticationManager authenticationManager) {
+    public JwtAuthenticationFilter(AuthenticationManager authenticationManager, JwtTokenCodec tokenCodec,
+            RefreshTokenService refreshTokenService, LoginRateLimiter rateLimiter) {
         this.authenticationManager = authenticationManager;
+        this.tokenCodec = tokenCodec;
+        this.refreshTokenService = refreshTokenService;
+        this.rateLimiter = rateLimiter;
     }
 
     // attemptAuthentication = intentar autenticacion
@@ -40,12 +59,19 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
     public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response)
             throws AuthenticationException {
 
+        // limites antes de leer el body, buscar el usuario o usar BCrypt
+        long retryAfter = rateLimiter.checkIp(request.getRemoteAddr());
+        if (retryAfter > 0) {
+            writeTooManyRequests(response, "Demasiados intentos de login desde esta IP", retryAfter);
+            return null;
+        }
+
         User user = null;
         String username = null;
         String password = null;
 
         try {
-            user = new ObjectMapper().readValue(request.getInputStream(), User.class);
+            user = USER_READER.readValue(request.getInputStream());
             username = user.getUsername();
             password = user.getPassword();
         } catch (StreamReadException e) {
@@ -56,8 +82,46 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
             e.printStackTrace();
         }
 
+        retryAfter = rateLimiter.checkUsername(username);
+        if (retryAfter > 0) {
+            writeTooManyRequests(response, "Demasiados intentos de login para este usuario", retryAfter);
+            return null;
+        }
+
         UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(username, password);
-        return authenticationManager.authenticate(authToken);
+        try {
+            return authenticationManager.authenticate(authToken);
+        } catch (RuntimeException e) {
+            PasswordHashingRejectedException rejected = findRejection(e);
+            if (rejected == null) {
+                throw e;
+            }
+            // pool de BCrypt saturado: se responde al momento en lugar de encolar
+            writeTooManyRequests(response, rejected.getMessage(), rejected.getRetryAfterSeconds());
+            return null;
+        }
+    }
+
+    private static PasswordHashingRejectedException findRejection(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof PasswordHashingRejectedException rejected) {
+                return rejected;
+            }
+        }
+        return null;
+    }
+
+    private void writeTooManyRequests(HttpServletResponse response, String message, long retryAfterSeconds) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", message);
+        try {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());// 429
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType("application/json");
+            response.getWriter().write(JSON_WRITER.writeValueAsString(body));
+        } catch (IOException e) {
+            log.warn("No se pudo escribir la respuesta 429 del login: {}", e.getMessage());
+        }
     }
 
     @Override
@@ -67,30 +131,20 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         String username = ((org.springframework.security.core.userdetails.User) authResult.getPrincipal())
                 .getUsername();
         Collection<? extends GrantedAuthority> roles = authResult.getAuthorities();
-        boolean isAdmin = roles.stream().anyMatch(r -> r.getAuthority().equals("ROLE_ADMIN"));
-
-        Claims claims = Jwts.claims()
-                .add("authorities", new ObjectMapper().writeValueAsString(roles))
-                .add("isAdmin", isAdmin)
-                .add("username", username)
-                .build();
-
-        String token = Jwts.builder()
-                .subject(username)
-                .claims(claims)// setea valores en JWT-PAYLOAD
-                .expiration(new Date(System.currentTimeMillis() + 3600000))// token expira en 1 hora = 3600000
-                .issuedAt(new Date())
-                .signWith(TokenJwtConfig.SECRET_KEY)
-                .compact();
+
+        String token = tokenCodec.createToken(username, roles);
+        // permite renovar el token en /auth/refresh sin volver a pasar por BCrypt
+        String refreshToken = refreshTokenService.issue(username);
 
         response.addHeader(TokenJwtConfig.HEADER_AUTHORIZATION, TokenJwtConfig.PREFIX_TOKEN + token);
 
         Map<String, String> body = new HashMap<>();
         body.put("token", token);
+        body.put("refreshToken", refreshToken);
         body.put("username", username);
         body.put("message", String.format("Hola %s has iniciado sesion con exito!", username));
 
-        response.getWriter().write(new ObjectMapper().writeValueAsString(body));
+        response.getWriter().write(JSON_WRITER.writeValueAsString(body));
         response.setStatus(HttpStatus.OK.value());// 200
         response.setContentType("application/json");
 
@@ -104,7 +158,7 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         body.put("message", "Error en la autenticacion username o password incorrecto!");
         body.put("error", failed.getMessage());
 
-        response.getWriter().write(new ObjectMapper().writeValueAsString(body));
+        response.getWriter().write(JSON_WRITER.writeValueAsString(body));
         response.setStatus(HttpStatus.UNAUTHORIZED.value());// 401
         response.setContentType("application/json");
 
@@ -1,26 +1,27 @@
 package com.cotic.backend.usersapp.backend_usersapp.auth.filters;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
-import com.cotic.backend.usersapp.backend_usersapp.auth.SimpleGrantedAuthorityJsonCreator;
+import com.cotic.backend.usersapp.backend_usersapp.auth.JwtTokenCodec;
 import com.cotic.backend.usersapp.backend_usersapp.auth.TokenJwtConfig;
+import com.cotic.backend.usersapp.backend_usersapp.auth.VerifiedTokenCache;
+import com.cotic.backend.usersapp.backend_usersapp.auth.VerifiedTokenCache.VerifiedToken;
+import com.cotic.backend.usersapp.backend_usersapp.services.TokenRevocationService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
-import io.jsonwebtoken.Jwts;
 
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import jakarta.servlet.FilterChain;
@@ -30,10 +31,20 @@ import jakarta.servlet.http.HttpServletResponse;
 
 public class JwtValidationFilter extends BasicAuthenticationFilter {
 
+    private static final ObjectWriter JSON_WRITER = new ObjectMapper().writer();
+
     // Validacion del token
 
-    public JwtValidationFilter(AuthenticationManager authenticationManager) {
+    private final VerifiedTokenCache tokenCache;
+    private final JwtTokenCodec tokenCodec;
+    private final TokenRevocationService revocationService;
+
+    public JwtValidationFilter(AuthenticationManager authenticationManager, VerifiedTokenCache tokenCache,
+            JwtTokenCodec tokenCodec, TokenRevocationService revocationService) {
         super(authenticationManager);
+        this.tokenCache = tokenCache;
+        this.tokenCodec = tokenCodec;
+        this.revocationService = revocationService;
     }
 
     @Override
@@ -51,25 +62,30 @@ public class JwtValidationFilter extends BasicAuthenticationFilter {
 
         try {
 
-            Claims claims = Jwts.parser().verifyWith(TokenJwtConfig.SECRET_KEY).build().parseSignedClaims(token)
-                    .getPayload();
-            String usename = claims.getSubject();
-            Object authoritiesClaims = claims.get("authorities");
+            // Token ya verificado anteriormente: se evita firma, claims y JSON de roles
+            VerifiedToken verified = tokenCache.get(token);
+            if (verified == null) {
+                Claims claims = tokenCodec.parseClaims(token);
+                String usename = claims.getSubject();
+                Collection<? extends GrantedAuthority> authorities = tokenCodec.readAuthorities(claims);
+
+                verified = new VerifiedToken(usename, List.copyOf(authorities), claims.getId(), claims.getIssuedAt(),
+                        claims.getExpiration());
+                tokenCache.put(token, verified);
+            }
 
-            Collection<? extends GrantedAuthority> authorities = Arrays
-                    .asList(new ObjectMapper()
-                            .addMixIn(SimpleGrantedAuthority.class, SimpleGrantedAuthorityJsonCreator.class)
-                            .readValue(authoritiesClaims.toString().getBytes(), SimpleGrantedAuthority[].class));
+            if (revocationService.isRevoked(verified.jti(), verified.username(),
+                    verified.issuedAt())) {
+                throw new JwtException("El token ha sido revocado");
+            }
 
-            UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(usename,
-                    null, authorities);
-            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+            SecurityContextHolder.getContext().setAuthentication(verified.authentication());
             chain.doFilter(request, response);
         } catch (JwtException e) {
             Map<String, String> body = new HashMap<>();
             body.put("error", e.getMessage());
             body.put("message", "El token JWT no es valido!");
-            response.getWriter().write(new ObjectMapper().writeValueAsString(body));
+            response.getWriter().write(JSON_WRITER.writeValueAsString(body));
             response.setStatus(HttpStatus.UNAUTHORIZED.value());// 401
             response.setContentType("application/json");
         }
@@ -0,0 +1,103 @@
+package com.cotic.backend.usersapp.backend_usersapp.controllers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cotic.backend.usersapp.backend_usersapp.auth.JwtTokenCodec;
+import com.cotic.backend.usersapp.backend_usersapp.auth.TokenJwtConfig;
+import com.cotic.backend.usersapp.backend_usersapp.services.RefreshTokenService;
+import com.cotic.backend.usersapp.backend_usersapp.services.RefreshTokenService.TokenPair;
+import com.cotic.backend.usersapp.backend_usersapp.services.TokenRevocationService;
+
+import io.jsonwebtoken.Claims;
+
+@RestController
+@RequestMapping("/auth")
+@CrossOrigin(originPatterns = "*")
+public class AuthController {
+
+    private final TokenRevocationService revocationService;
+    private final RefreshTokenService refreshTokenService;
+    private final JwtTokenCodec tokenCodec;
+
+    @Autowired
+    public AuthController(TokenRevocationService revocationService, RefreshTokenService refreshTokenService,
+            JwtTokenCodec tokenCodec) {
+        this.revocationService = revocationService;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenCodec = tokenCodec;
+    }
+
+    // DTO para recibir el refresh token
+    public static class RefreshRequest {
+        public String refreshToken;
+
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+
+        public void setRefreshToken(String refreshToken) {
+            this.refreshToken = refreshToken;
+        }
+    }
+
+    /**
+     * Cambia un refresh token por un token de acceso y un refresh token nuevos,
+     * sin verificar la contrasena.
+     * Ejemplo de body: { "refreshToken": "..." }
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<String, String>> refresh(@RequestBody RefreshRequest request) {
+        Optional<TokenPair> o = refreshTokenService.refresh(request.refreshToken);
+        Map<String, String> body = new HashMap<>();
+        if (o.isPresent()) {
+            TokenPair pair = o.orElseThrow();
+            body.put("token", pair.accessToken());
+            body.put("refreshToken", pair.refreshToken());
+            body.put("username", pair.username());
+            return ResponseEntity.ok()
+                    .header(TokenJwtConfig.HEADER_AUTHORIZATION, TokenJwtConfig.PREFIX_TOKEN + pair.accessToken())
+                    .body(body);
+        }
+        body.put("message", "El refresh token no es valido!");
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(body);
+    }
+
+    /**
+     * Revoca el token con el que se hace la llamada (logout) y, si se envia,
+     * la familia del refresh token.
+     * El token ya fue validado por JwtValidationFilter.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(TokenJwtConfig.HEADER_AUTHORIZATION) String header,
+            @RequestBody(required = false) RefreshRequest request) {
+        Claims claims = tokenCodec.parseClaims(JwtTokenCodec.stripPrefix(header));
+        revocationService.revoke(claims.getId(), claims.getSubject(), claims.getExpiration());
+        if (request != null) {
+            refreshTokenService.revoke(request.refreshToken);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Revoca todos los tokens (acceso y refresh) emitidos hasta ahora para el
+     * usuario (solo ADMIN).
+     */
+    @PostMapping("/revoke/{username}")
+    public ResponseEntity<Void> revokeAll(@PathVariable(name = "username") String username) {
+        revocationService.revokeAllForUser(username);
+        return ResponseEntity.noContent().build();
+    }
+}
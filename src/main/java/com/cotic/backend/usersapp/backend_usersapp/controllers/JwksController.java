@@ -0,0 +1,41 @@
+package com.cotic.backend.usersapp.backend_usersapp.controllers;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import com.cotic.backend.usersapp.backend_usersapp.auth.JwtKeyRing;
+
+/**
+ * Publica las claves publicas de firma (JWKS) para que otros servicios
+ * verifiquen los JWT localmente, sin llamar a /users/validate-token.
+ */
+@RestController
+public class JwksController {
+
+    private final JwtKeyRing keyRing;
+    private final CacheControl cacheControl;
+
+    @Autowired
+    public JwksController(JwtKeyRing keyRing, @Value("${app.jwt.jwks.max-age:PT5M}") Duration maxAge) {
+        this.keyRing = keyRing;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+    }
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks(WebRequest request) {
+        String etag = "\"" + keyRing.version() + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).eTag(etag).build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).eTag(etag).body(keyRing.jwks());
+    }
+}
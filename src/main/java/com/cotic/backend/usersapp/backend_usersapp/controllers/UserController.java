@@ -1,42 +1,101 @@
 package com.cotic.backend.usersapp.backend_usersapp.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPOutputStream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.cotic.backend.usersapp.backend_usersapp.auth.PasswordHashingRejectedException;
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.BulkImportResult;
 import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserDto;
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserPage;
 import com.cotic.backend.usersapp.backend_usersapp.models.entities.User;
 import com.cotic.backend.usersapp.backend_usersapp.models.request.UserRequest;
+import com.cotic.backend.usersapp.backend_usersapp.services.ChangeCursorExpiredException;
+import com.cotic.backend.usersapp.backend_usersapp.services.TokenValidationResult;
+import com.cotic.backend.usersapp.backend_usersapp.services.UserBulkImportService;
+import com.cotic.backend.usersapp.backend_usersapp.services.UserChangeFeed;
+import com.cotic.backend.usersapp.backend_usersapp.services.UserExportService;
+import com.cotic.backend.usersapp.backend_usersapp.services.UserSearchIndex;
 import com.cotic.backend.usersapp.backend_usersapp.services.UserService;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @RestController
 @RequestMapping("/users")
 @CrossOrigin(originPatterns = "*")
 public class UserController {
 
+    static final String CHANGES_CURSOR_HEADER = "X-Changes-Cursor";
+
     private final UserService service;
+    private final UserExportService exportService;
+    private final UserBulkImportService bulkImportService;
+    private final UserSearchIndex searchIndex;
+    private final UserChangeFeed changeFeed;
+    private final int maxValidationBatch;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int defaultSearchLimit;
+    private final int maxSearchLimit;
+    private final Duration maxChangesWait;
 
     @Autowired
-    public UserController(UserService service) {
+    public UserController(UserService service, UserExportService exportService,
+            UserBulkImportService bulkImportService, UserSearchIndex searchIndex, UserChangeFeed changeFeed,
+            @Value("${app.security.validate-tokens.max-batch:1000}") int maxValidationBatch,
+            @Value("${app.users.page.default-limit:50}") int defaultPageSize,
+            @Value("${app.users.page.max-limit:500}") int maxPageSize,
+            @Value("${app.users.search.default-limit:10}") int defaultSearchLimit,
+            @Value("${app.users.search.max-limit:50}") int maxSearchLimit,
+            @Value("${app.users.changes.max-wait:PT30S}") Duration maxChangesWait) {
         this.service = service;
+        this.exportService = exportService;
+        this.bulkImportService = bulkImportService;
+        this.searchIndex = searchIndex;
+        this.changeFeed = changeFeed;
+        this.maxValidationBatch = maxValidationBatch;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.defaultSearchLimit = defaultSearchLimit;
+        this.maxSearchLimit = maxSearchLimit;
+        this.maxChangesWait = maxChangesWait;
     }
 
     // DTO para recibir el token
@@ -52,17 +111,155 @@ public class UserController {
         }
     }
 
+    /**
+     * Lista paginada por cursor: {@code ?after=<id>&limit=} con filtros
+     * opcionales {@code username}, {@code email} (prefijos) y {@code admin}.
+     * Respuesta: { "items": [...], "next": id o null }.
+     * Con {@code ?all=true} devuelve la lista completa sin paginar (formato
+     * anterior).
+     */
     // @GetMapping("/")
     @GetMapping
-    public List<UserDto> list() {
-        return service.findAll();
+    public ResponseEntity<?> list(@RequestParam(name = "after", required = false) Long after,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "username", required = false) String username,
+            @RequestParam(name = "email", required = false) String email,
+            @RequestParam(name = "admin", required = false) Boolean admin,
+            @RequestParam(name = "all", defaultValue = "false") boolean all) {
+        if (all) {
+            List<UserDto> users = service.findAll();
+            return ResponseEntity.ok().eTag(listETag(users, null)).body(users);
+        }
+        int pageSize = limit != null ? limit : defaultPageSize;
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            Map<String, String> errors = new HashMap<>();
+            errors.put("limit", "El campo limit debe estar entre 1 y " + maxPageSize);
+            return ResponseEntity.badRequest().body(errors);
+        }
+        UserPage page = service.findPage(after, pageSize, username, email, admin);
+        // con If-None-Match igual, Spring responde 304 sin escribir el cuerpo
+        return ResponseEntity.ok().eTag(listETag(page.getItems(), page.getNext())).body(page);
+    }
+
+    /**
+     * Busqueda para autocompletar: usuarios cuyo username o email empieza por
+     * {@code q} y, desde 3 caracteres, los que lo contienen. Se resuelve en
+     * memoria ({@link UserSearchIndex}); primero las coincidencias por prefijo.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam(name = "q") String q,
+            @RequestParam(name = "limit", required = false) Integer limit) {
+        int size = limit != null ? limit : defaultSearchLimit;
+        if (size < 1 || size > maxSearchLimit) {
+            Map<String, String> errors = new HashMap<>();
+            errors.put("limit", "El campo limit debe estar entre 1 y " + maxSearchLimit);
+            return ResponseEntity.badRequest().body(errors);
+        }
+        return ResponseEntity.ok(searchIndex.search(q, size));
     }
 
+    /**
+     * Cambios desde el cursor {@code since} (0 = desde el principio): altas y
+     * ediciones con el estado actual del usuario y bajas con
+     * {@code deleted=true}, en orden. La respuesta trae el cursor
+     * {@code next} para la siguiente peticion. Con {@code wait=<segundos>} y
+     * sin cambios la respuesta espera a que los haya (hasta
+     * {@code app.users.changes.max-wait}). Un cursor anterior a las bajas ya
+     * purgadas recibe 410: hay que volver a descargar todo con
+     * {@code GET /users/export} y seguir desde su cabecera
+     * {@code X-Changes-Cursor}. {@code since=0} siempre es valido.
+     */
+    @GetMapping("/changes")
+    public CompletableFuture<ResponseEntity<?>> changes(@RequestParam(name = "since", defaultValue = "0") long since,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "wait", defaultValue = "0") long waitSeconds) {
+        int pageSize = limit != null ? limit : defaultPageSize;
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            Map<String, String> errors = new HashMap<>();
+            errors.put("limit", "El campo limit debe estar entre 1 y " + maxPageSize);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errors));
+        }
+        Duration wait = Duration.ofSeconds(Math.max(0, waitSeconds));
+        if (wait.compareTo(maxChangesWait) > 0) {
+            wait = maxChangesWait;
+        }
+        return changeFeed.await(since, pageSize, wait).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Exporta todos los usuarios en streaming, uno por linea (NDJSON) o en
+     * CSV ({@code ?format=csv}), ordenados por id. {@code ?after=<id>}
+     * reanuda una descarga cortada. Con {@code Accept-Encoding: gzip} la
+     * respuesta va comprimida. La cabecera {@code X-Changes-Cursor} es el
+     * {@code since} con el que seguir en {@code GET /users/changes}.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(name = "format", defaultValue = "ndjson") String format,
+            @RequestParam(name = "after", required = false) Long after,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse servletResponse) {
+        UserExportService.Format exportFormat;
+        MediaType contentType;
+        if ("csv".equalsIgnoreCase(format)) {
+            exportFormat = UserExportService.Format.CSV;
+            contentType = new MediaType("text", "csv", StandardCharsets.UTF_8);
+        } else if ("ndjson".equalsIgnoreCase(format)) {
+            exportFormat = UserExportService.Format.NDJSON;
+            contentType = MediaType.APPLICATION_NDJSON;
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El campo format debe ser ndjson o csv");
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        // el cursor se lee en la transaccion de la exportacion; la respuesta
+        // aun no se ha enviado cuando se anade la cabecera
+        LongConsumer changesCursor = cursor -> servletResponse.setHeader(CHANGES_CURSOR_HEADER, String.valueOf(cursor));
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                ExportGzipStream zip = new ExportGzipStream(out);
+                try {
+                    exportService.export(after, exportFormat, zip, changesCursor);
+                    zip.finish();
+                } finally {
+                    zip.end();
+                }
+            } else {
+                exportService.export(after, exportFormat, out, changesCursor);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"users." + format.toLowerCase() + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Con {@code If-None-Match} se consulta solo la version del usuario: si
+     * coincide se responde 304 sin cargarlo ni serializarlo.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<?> show(@PathVariable(name = "id") Long id) {
+    public ResponseEntity<?> show(@PathVariable(name = "id") Long id,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<Long> version = service.findVersion(id);
+            if (!version.isPresent()) {
+                return ResponseEntity.notFound().build();
+            }
+            String eTag = eTag(version.orElseThrow());
+            if (eTagMatches(ifNoneMatch, eTag, true)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
         Optional<UserDto> userOptional = service.findById(id);
         if (userOptional.isPresent()) {
-            return ResponseEntity.ok(userOptional.orElseThrow());
+            UserDto user = userOptional.orElseThrow();
+            return ResponseEntity.ok().eTag(eTag(user.getVersion())).body(user);
         }
         return ResponseEntity.notFound().build();
     }
@@ -75,24 +272,46 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(service.save(user));
     }
 
+    /**
+     * Alta masiva: array JSON o NDJSON (application/x-ndjson) de usuarios con
+     * el mismo formato que POST /users. Devuelve un resultado por fila; las
+     * filas invalidas o repetidas no impiden crear las demas.
+     */
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<BulkImportResult> bulk(InputStream body) throws IOException {
+        return ResponseEntity.ok(bulkImportService.importUsers(body));
+    }
+
+    /**
+     * Con {@code If-Match: "<version>"} la edicion solo se aplica si el usuario
+     * no cambio desde que el cliente lo leyo; si cambio, 412.
+     */
     @PutMapping("/{id}")
     public ResponseEntity<?> update(@Valid @RequestBody UserRequest user, BindingResult result,
-            @PathVariable(name = "id") Long id) {
+            @PathVariable(name = "id") Long id,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         if (result.hasErrors()) {
             return validation(result);
         }
-        Optional<UserDto> o = service.update(user, id);
+        Long expectedVersion = null;
+        if (ifMatch != null && !ifMatch.trim().equals("*")) {
+            expectedVersion = parseVersion(ifMatch);
+            if (expectedVersion == null) {
+                return preconditionFailed();
+            }
+        }
+        Optional<UserDto> o = service.update(user, id, expectedVersion);
         if (o.isPresent()) {
-            return ResponseEntity.status(HttpStatus.CREATED).body(o.orElseThrow());
+            UserDto dto = o.orElseThrow();
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(eTag(dto.getVersion())).body(dto);
         }
         return ResponseEntity.notFound().build();
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<?> remove(@PathVariable(name = "id") Long id) {
-        Optional<UserDto> o = service.findById(id);
-        if (o.isPresent()) {
-            service.remove(id);
+        if (service.remove(id)) {
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
@@ -125,4 +344,117 @@ public class UserController {
         }
         return ResponseEntity.ok(resp);
     }
+
+    /**
+     * Endpoint para validar varios tokens JWT en una sola llamada
+     * Ejemplo de body: [ "Bearer eyJ...", "eyJ..." ]
+     * Respuesta: un resultado por token, en el mismo orden
+     */
+    @PostMapping("/validate-tokens")
+    public ResponseEntity<?> validateTokens(@RequestBody List<String> tokens) {
+        if (tokens.size() > maxValidationBatch) {
+            Map<String, String> errors = new HashMap<>();
+            errors.put("tokens", "El lote no puede superar " + maxValidationBatch + " tokens");
+            return ResponseEntity.badRequest().body(errors);
+        }
+        List<TokenValidationResult> results = service.validateTokens(tokens);
+        return ResponseEntity.ok(results);
+    }
+
+    @ExceptionHandler(ChangeCursorExpiredException.class)
+    public ResponseEntity<Map<String, Object>> changeCursorExpired(ChangeCursorExpiredException e) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", e.getMessage());
+        body.put("prunedThrough", e.getPrunedThrough());
+        return ResponseEntity.status(HttpStatus.GONE).body(body);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> optimisticLockingFailure(OptimisticLockingFailureException e) {
+        return preconditionFailed();
+    }
+
+    private static ResponseEntity<Map<String, String>> preconditionFailed() {
+        Map<String, String> body = new HashMap<>();
+        body.put("message", "El usuario fue modificado por otra peticion, vuelva a leerlo");
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(body);
+    }
+
+    private static String eTag(Long version) {
+        return "\"" + (version != null ? version : 0L) + "\"";
+    }
+
+    // ETag fuerte de una lista: hash de los pares id:version y del cursor
+    private static String listETag(List<UserDto> users, Long next) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder sb = new StringBuilder(24);
+            for (UserDto user : users) {
+                sb.setLength(0);
+                sb.append(user.getId()).append(':').append(user.getVersion()).append(';');
+                digest.update(sb.toString().getBytes(StandardCharsets.US_ASCII));
+            }
+            digest.update(String.valueOf(next).getBytes(StandardCharsets.US_ASCII));
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // If-None-Match admite comparacion debil (W/); If-Match no
+    private static boolean eTagMatches(String header, String eTag, boolean weak) {
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (weak && value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // If-Match: "<version>" (un solo valor; los ETag debiles no valen)
+    private static Long parseVersion(String ifMatch) {
+        String value = ifMatch.trim();
+        if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            return null;
+        }
+        try {
+            return Long.valueOf(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // el alta/edicion hashea la contrasena en un pool acotado; si esta lleno, 429
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<Map<String, String>> passwordHashingRejected(PasswordHashingRejectedException e) {
+        Map<String, String> body = new HashMap<>();
+        body.put("message", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    /**
+     * {@code finish()} no libera el {@link java.util.zip.Deflater} nativo y
+     * {@code close()} escribiria el trailer aunque la exportacion haya
+     * fallado (el cliente veria un gzip valido pero incompleto). {@link #end()}
+     * solo libera el Deflater; el stream de la respuesta lo cierra Spring.
+     */
+    private static final class ExportGzipStream extends GZIPOutputStream {
+
+        ExportGzipStream(OutputStream out) throws IOException {
+            super(out, 8192);
+        }
+
+        void end() {
+            def.end();
+        }
+    }
 }
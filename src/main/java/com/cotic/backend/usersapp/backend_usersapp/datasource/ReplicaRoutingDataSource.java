@@ -0,0 +1,210 @@
+package com.cotic.backend.usersapp.backend_usersapp.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Envia las transacciones de solo lectura a las replicas y el resto a la
+ * primaria.
+ * <p>
+ * Debe usarse detras de un {@code LazyConnectionDataSourceProxy}: el gestor
+ * de transacciones pide la conexion antes de marcar la transaccion como de
+ * solo lectura, y el proxy retrasa la eleccion hasta la primera sentencia.
+ * <p>
+ * Tras confirmar una transaccion de escritura, las lecturas del mismo usuario
+ * autenticado van a la primaria durante {@code readYourWritesWindow}, para que
+ * no vea datos anteriores a su propio cambio mientras la replica se pone al
+ * dia. Una replica que falla al dar conexion o en {@link #checkReplicas()}
+ * se saca de la rotacion hasta que vuelva a responder; sin replicas sanas se
+ * lee de la primaria.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+    private static final Object WRITE_SYNC_KEY = new Object();
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration readYourWritesWindow) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow.toNanos(), TimeUnit.NANOSECONDS)
+                .maximumSize(100_000)
+                .build();
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            registerWrite();
+            return PRIMARY;
+        }
+        String principal = principal();
+        if (principal != null && recentWriters.getIfPresent(principal) != null) {
+            return PRIMARY;
+        }
+        Integer replica = nextHealthyReplica();
+        return replica != null ? replica : PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (key instanceof Integer index) {
+            try {
+                return replicas.get(index).dataSource.getConnection();
+            } catch (SQLException e) {
+                markDown(index, e);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Comprueba las replicas y vuelve a poner en rotacion las que responden.
+     */
+    public void checkReplicas() {
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(i);
+            boolean up;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                up = connection.isValid(2);
+            } catch (SQLException e) {
+                up = false;
+            }
+            if (up != replica.healthy) {
+                log.warn("Replica {} {}", i, up ? "disponible de nuevo" : "no disponible, se lee de la primaria");
+            }
+            replica.healthy = up;
+        }
+    }
+
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(r -> r.healthy).count();
+    }
+
+    private Integer nextHealthyReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, size));
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            if (replicas.get(index).healthy) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    private void markDown(int index, SQLException e) {
+        Replica replica = replicas.get(index);
+        if (replica.healthy) {
+            log.warn("Replica {} no disponible, se lee de la primaria: {}", index, e.getMessage());
+        }
+        replica.healthy = false;
+    }
+
+    // recuerda al usuario al confirmar la transaccion de escritura (sin
+    // usuario autenticado no hay a quien asociar la lectura posterior)
+    private void registerWrite() {
+        String principal = principal();
+        if (principal == null || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(WRITE_SYNC_KEY)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(WRITE_SYNC_KEY, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(principal, Boolean.TRUE);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(WRITE_SYNC_KEY);
+            }
+        });
+    }
+
+    private static String principal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    // sin "throws Exception": close() no debe poder lanzar InterruptedException
+    // (aviso [try] de javac). Un pool que falla al cerrar no impide cerrar el resto
+    @Override
+    public void close() {
+        for (Replica replica : replicas) {
+            close(replica.dataSource);
+        }
+        close(primary);
+    }
+
+    private static void close(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                log.warn("No se pudo cerrar el pool de conexiones", e);
+            }
+        }
+    }
+
+    private static class Replica {
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.cotic.backend.usersapp.backend_usersapp.metrics;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Cuenta en {@link RequestSqlStats} las entidades que Hibernate carga
+ * (incluidas las que salen de la cache de segundo nivel) y las colecciones
+ * perezosas que se inicializan durante la peticion: estas ultimas son las
+ * que delatan un N+1.
+ */
+@Component
+@Lazy(false)
+public class HibernateLoadListeners {
+
+    @Autowired
+    public HibernateLoadListeners(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_LOAD, (PostLoadEventListener) event -> {
+            RequestSqlStats stats = RequestSqlStats.current();
+            if (stats != null) {
+                stats.entityLoaded();
+            }
+        });
+        registry.appendListeners(EventType.INIT_COLLECTION, (InitializeCollectionEventListener) event -> {
+            RequestSqlStats stats = RequestSqlStats.current();
+            if (stats != null) {
+                stats.collectionLoaded();
+            }
+        });
+    }
+}
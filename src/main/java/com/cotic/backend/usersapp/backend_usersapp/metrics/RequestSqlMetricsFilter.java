@@ -0,0 +1,122 @@
+package com.cotic.backend.usersapp.backend_usersapp.metrics;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Publica por endpoint (method + uri, como {@code http.server.requests}) lo
+ * que cada peticion hizo contra la BD:
+ * <ul>
+ * <li>{@code request.sql.statements}: sentencias JDBC ejecutadas</li>
+ * <li>{@code request.entities.loaded} y {@code request.collections.loaded}</li>
+ * <li>{@code request.connection.acquire}: espera total por conexiones</li>
+ * <li>{@code request.transaction}: tiempo total dentro de transacciones</li>
+ * </ul>
+ * Va antes de Spring Security para incluir sus consultas. De las respuestas
+ * asincronas (export, long polling) solo se mide la parte del hilo de la
+ * peticion. Las peticiones que superan
+ * {@code app.metrics.slow-request-threshold} se registran con el desglose
+ * de SQL.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RequestSqlMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestSqlMetricsFilter.class);
+
+    static final String LOGIN_URI = "/login";
+
+    private final MeterRegistry meterRegistry;
+    private final long slowRequestNanos;
+
+    @Autowired
+    public RequestSqlMetricsFilter(MeterRegistry meterRegistry,
+            @Value("${app.metrics.slow-request-threshold:PT1S}") Duration slowRequestThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.slowRequestNanos = slowRequestThreshold.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        RequestSqlStats stats = RequestSqlStats.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestSqlStats.end();
+            long elapsed = System.nanoTime() - start;
+            Tags tags = Tags.of("method", request.getMethod(), "uri", uri(request));
+            record(stats, tags);
+            if (elapsed >= slowRequestNanos) {
+                log.warn("Peticion lenta {} {} ({} ms, status {}): {}", request.getMethod(),
+                        request.getRequestURI(), TimeUnit.NANOSECONDS.toMillis(elapsed), response.getStatus(),
+                        stats.describe(5));
+            }
+        }
+    }
+
+    private void record(RequestSqlStats stats, Tags tags) {
+        DistributionSummary.builder("request.sql.statements")
+                .description("Sentencias SQL ejecutadas por peticion")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        DistributionSummary.builder("request.entities.loaded")
+                .description("Entidades cargadas por Hibernate por peticion")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getEntitiesLoaded());
+        DistributionSummary.builder("request.collections.loaded")
+                .description("Colecciones perezosas inicializadas por peticion")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getCollectionsLoaded());
+        Timer.builder("request.connection.acquire")
+                .description("Espera total por conexiones de la BD en la peticion")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getConnectionNanos(), TimeUnit.NANOSECONDS);
+        if (stats.getTransactions() > 0) {
+            Timer.builder("request.transaction")
+                    .description("Tiempo total dentro de transacciones en la peticion")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(stats.getTransactionNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // el patron de la ruta, no la URL, para no crear una serie por id
+    private static String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) {
+            return pattern.toString();
+        }
+        // POST /login lo responde JwtAuthenticationFilter sin llegar a Spring MVC:
+        // no hay patron, pero es una ruta fija y de las que mas consultan la BD
+        if (LOGIN_URI.equals(request.getServletPath())) {
+            return LOGIN_URI;
+        }
+        return "UNKNOWN";
+    }
+}
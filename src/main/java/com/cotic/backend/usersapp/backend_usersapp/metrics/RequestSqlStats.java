@@ -0,0 +1,163 @@
+package com.cotic.backend.usersapp.backend_usersapp.metrics;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lo que una peticion HTTP hizo contra la BD: sentencias (por tipo y por
+ * texto), entidades y colecciones cargadas, espera de conexiones y
+ * transacciones. Lo abre {@link RequestSqlMetricsFilter} en el hilo de la
+ * peticion; fuera de una peticion {@link #current()} es null y nada se mide.
+ */
+public final class RequestSqlStats {
+
+    private static final ThreadLocal<RequestSqlStats> CURRENT = new ThreadLocal<>();
+
+    // sentencias distintas que se guardan para el log de peticiones lentas
+    private static final int MAX_DISTINCT_SQL = 50;
+
+    private int statements;
+    private int selects;
+    private int inserts;
+    private int updates;
+    private int deletes;
+    private long statementNanos;
+    private int entitiesLoaded;
+    private int collectionsLoaded;
+    private int connections;
+    private long connectionNanos;
+    private int transactions;
+    private long transactionNanos;
+    private final Deque<Long> openTransactions = new ArrayDeque<>(2);
+    private final Map<String, SqlStat> bySql = new LinkedHashMap<>();
+
+    static RequestSqlStats start() {
+        RequestSqlStats stats = new RequestSqlStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    public static RequestSqlStats current() {
+        return CURRENT.get();
+    }
+
+    void statement(String sql, long nanos) {
+        statements++;
+        statementNanos += nanos;
+        String kind = sql == null ? "" : sql.stripLeading();
+        kind = kind.length() >= 6 ? kind.substring(0, 6).toLowerCase(Locale.ROOT) : "";
+        switch (kind) {
+            case "select" -> selects++;
+            case "insert" -> inserts++;
+            case "update" -> updates++;
+            case "delete" -> deletes++;
+            default -> {
+            }
+        }
+        String key = sql == null ? "?" : sql;
+        SqlStat stat = bySql.get(key);
+        if (stat == null && bySql.size() < MAX_DISTINCT_SQL) {
+            stat = new SqlStat();
+            bySql.put(key, stat);
+        }
+        if (stat != null) {
+            stat.count++;
+            stat.nanos += nanos;
+        }
+    }
+
+    void connectionAcquired(long nanos) {
+        connections++;
+        connectionNanos += nanos;
+    }
+
+    void entityLoaded() {
+        entitiesLoaded++;
+    }
+
+    void collectionLoaded() {
+        collectionsLoaded++;
+    }
+
+    void transactionStarted() {
+        openTransactions.push(System.nanoTime());
+    }
+
+    // una transaccion abierta antes de la peticion no cuenta
+    void transactionEnded() {
+        Long start = openTransactions.poll();
+        if (start != null) {
+            transactions++;
+            transactionNanos += System.nanoTime() - start;
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getEntitiesLoaded() {
+        return entitiesLoaded;
+    }
+
+    public int getCollectionsLoaded() {
+        return collectionsLoaded;
+    }
+
+    public long getConnectionNanos() {
+        return connectionNanos;
+    }
+
+    public int getTransactions() {
+        return transactions;
+    }
+
+    public long getTransactionNanos() {
+        return transactionNanos;
+    }
+
+    /**
+     * Resumen para el log: totales y las sentencias que mas tiempo tomaron.
+     */
+    String describe(int topSql) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(statements).append(" sentencias (")
+                .append(selects).append(" select, ")
+                .append(inserts).append(" insert, ")
+                .append(updates).append(" update, ")
+                .append(deletes).append(" delete) en ").append(millis(statementNanos)).append(" ms, ")
+                .append(entitiesLoaded).append(" entidades y ")
+                .append(collectionsLoaded).append(" colecciones cargadas, ")
+                .append(connections).append(" conexiones (espera ").append(millis(connectionNanos)).append(" ms), ")
+                .append(transactions).append(" transacciones (").append(millis(transactionNanos)).append(" ms)");
+        bySql.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, SqlStat> e) -> e.getValue().nanos).reversed())
+                .limit(topSql)
+                .forEach(e -> sb.append("\n    ").append(e.getValue().count).append("x ")
+                        .append(millis(e.getValue().nanos)).append(" ms  ").append(abbreviate(e.getKey())));
+        return sb.toString();
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static String abbreviate(String sql) {
+        String oneLine = sql.replaceAll("\\s+", " ");
+        return oneLine.length() > 200 ? oneLine.substring(0, 200) + "..." : oneLine;
+    }
+
+    private static final class SqlStat {
+        private int count;
+        private long nanos;
+    }
+}
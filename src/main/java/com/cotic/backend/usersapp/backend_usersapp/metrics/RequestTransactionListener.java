@@ -0,0 +1,40 @@
+package com.cotic.backend.usersapp.backend_usersapp.metrics;
+
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+/**
+ * Mide la duracion de las transacciones fisicas de la peticion en curso.
+ * Spring Boot lo registra en el gestor de transacciones; las transacciones
+ * que solo se unen a otra ya abierta no llegan aqui.
+ */
+@Component
+public class RequestTransactionListener implements TransactionExecutionListener {
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, @Nullable Throwable beginFailure) {
+        RequestSqlStats stats = RequestSqlStats.current();
+        if (stats != null && beginFailure == null) {
+            stats.transactionStarted();
+        }
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, @Nullable Throwable commitFailure) {
+        ended();
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, @Nullable Throwable rollbackFailure) {
+        ended();
+    }
+
+    private static void ended() {
+        RequestSqlStats stats = RequestSqlStats.current();
+        if (stats != null) {
+            stats.transactionEnded();
+        }
+    }
+}
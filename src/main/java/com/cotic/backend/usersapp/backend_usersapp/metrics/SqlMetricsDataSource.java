@@ -0,0 +1,120 @@
+package com.cotic.backend.usersapp.backend_usersapp.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Mide, para la peticion en curso ({@link RequestSqlStats}), la espera al
+ * pedir una conexion y cada sentencia ejecutada, tanto de Hibernate como de
+ * JdbcTemplate. Fuera de una peticion devuelve la conexion sin envolver.
+ */
+public class SqlMetricsDataSource extends DelegatingDataSource {
+
+    public SqlMetricsDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        RequestSqlStats stats = RequestSqlStats.current();
+        if (stats == null) {
+            return super.getConnection();
+        }
+        long start = System.nanoTime();
+        Connection connection = super.getConnection();
+        stats.connectionAcquired(System.nanoTime() - start);
+        return wrap(connection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        RequestSqlStats stats = RequestSqlStats.current();
+        if (stats == null) {
+            return super.getConnection(username, password);
+        }
+        long start = System.nanoTime();
+        Connection connection = super.getConnection(username, password);
+        stats.connectionAcquired(System.nanoTime() - start);
+        return wrap(connection);
+    }
+
+    private static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(SqlMetricsDataSource.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new ConnectionHandler(connection));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SqlMetricsDataSource.invoke(target, method, args);
+            Class<?> type = switch (method.getName()) {
+                case "prepareStatement" -> PreparedStatement.class;
+                case "prepareCall" -> CallableStatement.class;
+                case "createStatement" -> Statement.class;
+                default -> null;
+            };
+            if (type == null) {
+                return result;
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+            return Proxy.newProxyInstance(SqlMetricsDataSource.class.getClassLoader(), new Class<?>[] { type },
+                    new StatementHandler(result, sql));
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+
+        private final Object target;
+        private final String sql;
+
+        StatementHandler(Object target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                return SqlMetricsDataSource.invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return SqlMetricsDataSource.invoke(target, method, args);
+            } finally {
+                RequestSqlStats stats = RequestSqlStats.current();
+                if (stats != null) {
+                    // Statement.execute(sql) trae el texto en la llamada
+                    String text = sql != null ? sql
+                            : args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                    stats.statement(text, System.nanoTime() - start);
+                }
+            }
+        }
+    }
+}
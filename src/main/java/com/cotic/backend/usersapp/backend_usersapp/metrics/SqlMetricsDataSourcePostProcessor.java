@@ -0,0 +1,44 @@
+package com.cotic.backend.usersapp.backend_usersapp.metrics;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Envuelve en {@link SqlMetricsDataSource} el DataSource que usa la
+ * aplicacion: el unico que haya o el {@code @Primary} (con replicas, el
+ * proxy de ReplicaRoutingConfig). Los DataSource internos no se envuelven
+ * para no contar dos veces cada sentencia.
+ */
+@Component
+public class SqlMetricsDataSourcePostProcessor implements BeanPostProcessor, BeanFactoryAware {
+
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof DataSource dataSource && !(bean instanceof SqlMetricsDataSource)
+                && isApplicationDataSource(beanName)) {
+            return new SqlMetricsDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    private boolean isApplicationDataSource(String beanName) {
+        if (!beanFactory.containsBeanDefinition(beanName)) {
+            return false;
+        }
+        return beanFactory.getBeanDefinition(beanName).isPrimary()
+                || beanFactory.getBeanNamesForType(DataSource.class, true, false).length == 1;
+    }
+}
@@ -0,0 +1,61 @@
+package com.cotic.backend.usersapp.backend_usersapp.models.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Respuesta de POST /users/bulk: totales y un resultado por fila, en el orden
+ * de la entrada. {@code error} indica que la entrada se dejo de leer (JSON
+ * invalido, demasiadas filas o tiempo agotado); las filas anteriores ya se
+ * procesaron. {@code nextRow} es la primera fila sin procesar cuando se puede
+ * reenviar el resto en otra peticion.
+ */
+public class BulkImportResult {
+
+    private int created;
+    private int failed;
+    private String error;
+    private Integer nextRow;
+    private List<BulkRowResult> results = new ArrayList<>();
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Integer getNextRow() {
+        return nextRow;
+    }
+
+    public void setNextRow(Integer nextRow) {
+        this.nextRow = nextRow;
+    }
+
+    public List<BulkRowResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BulkRowResult> results) {
+        this.results = results;
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.cotic.backend.usersapp.backend_usersapp.models.dto;
+
+import java.util.Map;
+
+/**
+ * Resultado de una fila de POST /users/bulk. {@code index} es la posicion
+ * de la fila en la entrada (desde 0).
+ */
+public class BulkRowResult {
+
+    public static final String CREATED = "CREATED";
+    public static final String ERROR = "ERROR";
+
+    private int index;
+    private String username;
+    private Long id;
+    private String status;
+    private Map<String, String> errors;
+
+    public BulkRowResult() {
+
+    }
+
+    public BulkRowResult(int index, String username) {
+        this.index = index;
+        this.username = username;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(Map<String, String> errors) {
+        this.errors = errors;
+    }
+
+}
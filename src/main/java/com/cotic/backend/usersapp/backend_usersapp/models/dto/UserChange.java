@@ -0,0 +1,84 @@
+package com.cotic.backend.usersapp.backend_usersapp.models.dto;
+
+/**
+ * Un cambio de GET /users/changes: el estado actual del usuario o, si
+ * {@code deleted}, su baja (solo id y modSeq).
+ */
+public class UserChange {
+
+    private Long id;
+    private String username;
+    private String email;
+    private boolean admin;
+    private Long modSeq;
+    private boolean deleted;
+
+    public UserChange() {
+
+    }
+
+    public UserChange(Long id, String username, String email, boolean admin, Long modSeq) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.admin = admin;
+        this.modSeq = modSeq;
+    }
+
+    public static UserChange deleted(Long id, Long modSeq) {
+        UserChange change = new UserChange();
+        change.id = id;
+        change.modSeq = modSeq;
+        change.deleted = true;
+        return change;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    public void setAdmin(boolean admin) {
+        this.admin = admin;
+    }
+
+    public Long getModSeq() {
+        return modSeq;
+    }
+
+    public void setModSeq(Long modSeq) {
+        this.modSeq = modSeq;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.cotic.backend.usersapp.backend_usersapp.models.dto;
+
+import java.util.List;
+
+/**
+ * Pagina de GET /users/changes, en orden de modSeq. {@code next} es el
+ * cursor para la siguiente peticion ({@code ?since=next}), haya o no
+ * cambios; {@code hasMore} indica que hay mas cambios ya disponibles.
+ */
+public class UserChangePage {
+
+    private List<UserChange> changes;
+    private long next;
+    private boolean hasMore;
+
+    public UserChangePage() {
+
+    }
+
+    public UserChangePage(List<UserChange> changes, long next, boolean hasMore) {
+        this.changes = changes;
+        this.next = next;
+        this.hasMore = hasMore;
+    }
+
+    public List<UserChange> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<UserChange> changes) {
+        this.changes = changes;
+    }
+
+    public long getNext() {
+        return next;
+    }
+
+    public void setNext(long next) {
+        this.next = next;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+}
@@ -1,11 +1,16 @@
 package com.cotic.backend.usersapp.backend_usersapp.models.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class UserDto {
 
     private Long id;
     private String username;
     private String email;
     private boolean admin;
+    // solo para el ETag, no se serializa
+    @JsonIgnore
+    private Long version;
 
     public UserDto() {
         
@@ -18,6 +23,11 @@ public class UserDto {
         this.admin = admin;
     }
 
+    public UserDto(Long id, String username, String email, boolean admin, Long version) {
+        this(id, username, email, admin);
+        this.version = version;
+    }
+
     public Long getId() {
         return id;
     }
@@ -44,5 +54,13 @@ public class UserDto {
     public void setAdmin(boolean admin) {
         this.admin = admin;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
     
 }
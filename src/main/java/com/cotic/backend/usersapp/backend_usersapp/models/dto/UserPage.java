@@ -0,0 +1,39 @@
+package com.cotic.backend.usersapp.backend_usersapp.models.dto;
+
+import java.util.List;
+
+/**
+ * Pagina de GET /users. {@code next} es el cursor para pedir la siguiente
+ * ({@code ?after=next}); es null en la ultima pagina.
+ */
+public class UserPage {
+
+    private List<UserDto> items;
+    private Long next;
+
+    public UserPage() {
+
+    }
+
+    public UserPage(List<UserDto> items, Long next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<UserDto> getItems() {
+        return items;
+    }
+
+    public void setItems(List<UserDto> items) {
+        this.items = items;
+    }
+
+    public Long getNext() {
+        return next;
+    }
+
+    public void setNext(Long next) {
+        this.next = next;
+    }
+
+}
@@ -25,7 +25,8 @@ public class DtoMapperUser {
             throw new RuntimeException("Debe pasar el entity user!");
         }
         boolean isAdmin = user.getRoles().stream().anyMatch(r -> "ROLE_ADMIN".equals(r.getName()));
-        return new UserDto(this.user.getId(), this.user.getUsername(), this.user.getEmail(), isAdmin);
+        return new UserDto(this.user.getId(), this.user.getUsername(), this.user.getEmail(), isAdmin,
+                this.user.getVersion());
     }
 
 }
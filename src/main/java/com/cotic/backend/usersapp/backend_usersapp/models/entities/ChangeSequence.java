@@ -0,0 +1,55 @@
+package com.cotic.backend.usersapp.backend_usersapp.models.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Contador de {@code users.mod_seq} (una fila por secuencia). Se incrementa
+ * con un UPDATE que bloquea la fila hasta el commit, asi que los valores se
+ * confirman en el mismo orden en que se asignan (ChangeSequenceService).
+ */
+@Entity
+@Table(name = "change_sequence")
+public class ChangeSequence {
+
+    public ChangeSequence() {
+
+    }
+
+    @Id
+    @Column(length = 32)
+    private String name;
+
+    @Column(name = "seq_value", nullable = false)
+    private Long seqValue;// ultimo valor asignado
+
+    @Column(name = "pruned_through", nullable = false)
+    private Long prunedThrough;// las bajas hasta este valor ya no estan en user_tombstones
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getSeqValue() {
+        return seqValue;
+    }
+
+    public void setSeqValue(Long seqValue) {
+        this.seqValue = seqValue;
+    }
+
+    public Long getPrunedThrough() {
+        return prunedThrough;
+    }
+
+    public void setPrunedThrough(Long prunedThrough) {
+        this.prunedThrough = prunedThrough;
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.cotic.backend.usersapp.backend_usersapp.models.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Fila de bloqueo del drenador de {@code user_outbox} (una por outbox). La
+ * instancia que la bloquea ({@code for update}) es la unica que publica
+ * hasta el commit de su lote (UserOutboxDrainer).
+ */
+@Entity
+@Table(name = "outbox_lock")
+public class OutboxLock {
+
+    public OutboxLock() {
+
+    }
+
+    @Id
+    @Column(length = 32)
+    private String name;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+}
@@ -2,26 +2,36 @@ package com.cotic.backend.usersapp.backend_usersapp.models.entities;
 
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
 import com.cotic.backend.usersapp.backend_usersapp.models.IUser;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_mod_seq", columnList = "mod_seq"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 public class User implements IUser{
 
     @Id
@@ -43,6 +53,7 @@ public class User implements IUser{
 
     
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-roles")
     @JoinTable(
         name = "users_roles",
         joinColumns = @JoinColumn(name="user_id"),
@@ -54,6 +65,18 @@ public class User implements IUser{
     @Transient//no se crea el campo en la tabla
     private boolean admin;
 
+    // control de concurrencia optimista; es tambien el ETag del usuario
+    @Version
+    @ColumnDefault("0")
+    @JsonIgnore
+    private Long version;
+
+    // posicion del ultimo cambio en GET /users/changes (ChangeSequenceService)
+    @Column(name = "mod_seq")
+    @ColumnDefault("0")
+    @JsonIgnore
+    private Long modSeq;
+
     public Long getId() {
         return id;
     }
@@ -103,4 +126,20 @@ public class User implements IUser{
         this.admin = admin;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getModSeq() {
+        return modSeq;
+    }
+
+    public void setModSeq(Long modSeq) {
+        this.modSeq = modSeq;
+    }
+
 }
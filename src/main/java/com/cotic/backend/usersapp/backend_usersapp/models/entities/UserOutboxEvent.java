@@ -0,0 +1,89 @@
+package com.cotic.backend.usersapp.backend_usersapp.models.entities;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Fila de la tabla {@code user_outbox}: un alta, edicion o baja de usuario
+ * pendiente de publicar. Se escribe en la misma transaccion que el cambio
+ * (UserOutboxWriter) y se borra al publicarla (UserOutboxDrainer).
+ */
+@Entity
+@Table(name = "user_outbox")
+public class UserOutboxEvent {
+
+    public UserOutboxEvent() {
+
+    }
+
+    public UserOutboxEvent(Long id, Long userId, String type, String username, Instant createdAt) {
+        this.id = id;
+        this.userId = userId;
+        this.type = type;
+        this.username = username;
+        this.createdAt = createdAt;
+    }
+
+    // el orden de los id es el orden de publicacion
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(length = 16, nullable = false)
+    private String type;// CREATED, UPDATED o DELETED
+
+    private String username;// null en las bajas
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.cotic.backend.usersapp.backend_usersapp.models.entities;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Revocacion de todos los tokens de un usuario emitidos hasta
+ * {@code revokedBefore}.
+ */
+@Entity
+@Table(name = "user_token_revocations")
+public class UserTokenRevocation {
+
+    public UserTokenRevocation() {
+
+    }
+
+    public UserTokenRevocation(String username, Instant revokedBefore, Instant expiresAt) {
+        this.username = username;
+        this.revokedBefore = revokedBefore;
+        this.expiresAt = expiresAt;
+    }
+
+    @Id
+    private String username;
+
+    @Column(name = "revoked_before", nullable = false)
+    private Instant revokedBefore;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;// cuando expira el ultimo token afectado
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public Instant getRevokedBefore() {
+        return revokedBefore;
+    }
+
+    public void setRevokedBefore(Instant revokedBefore) {
+        this.revokedBefore = revokedBefore;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.cotic.backend.usersapp.backend_usersapp.models.entities;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Baja de un usuario para {@code GET /users/changes}: la fila de
+ * {@code users} ya no existe, pero el consumidor debe enterarse.
+ */
+@Entity
+@Table(name = "user_tombstones", indexes = @Index(name = "idx_user_tombstones_mod_seq", columnList = "mod_seq"))
+public class UserTombstone {
+
+    public UserTombstone() {
+
+    }
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "mod_seq", nullable = false)
+    private Long modSeq;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Instant deletedAt;// pasada la retencion la fila se borra
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getModSeq() {
+        return modSeq;
+    }
+
+    public void setModSeq(Long modSeq) {
+        this.modSeq = modSeq;
+    }
+
+    public Instant getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(Instant deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
+}
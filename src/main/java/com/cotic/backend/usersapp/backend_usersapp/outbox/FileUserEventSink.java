@@ -0,0 +1,50 @@
+package com.cotic.backend.usersapp.backend_usersapp.outbox;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.UserOutboxEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Anade cada lote al fichero {@code app.outbox.sink.file.path}, un evento
+ * JSON por linea (NDJSON). Util para probar consumidores en local
+ * ({@code tail -f}).
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.sink", havingValue = "file")
+public class FileUserEventSink implements UserEventSink {
+
+    private final ObjectMapper objectMapper;
+    private final Path path;
+
+    @Autowired
+    public FileUserEventSink(ObjectMapper objectMapper,
+            @Value("${app.outbox.sink.file.path:user-events.ndjson}") Path path) {
+        this.objectMapper = objectMapper;
+        this.path = path;
+    }
+
+    @Override
+    public synchronized void publish(List<UserOutboxEvent> batch) throws IOException {
+        StringBuilder lines = new StringBuilder(batch.size() * 128);
+        for (UserOutboxEvent event : batch) {
+            lines.append(objectMapper.writeValueAsString(event)).append('\n');
+        }
+        // el lote se escribe de una vez; si falla se reintenta entero
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            writer.write(lines.toString());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.cotic.backend.usersapp.backend_usersapp.outbox;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.UserOutboxEvent;
+
+/**
+ * Destino por defecto, para desarrollo y pruebas: guarda en memoria los
+ * ultimos {@code app.outbox.sink.memory.capacity} eventos publicados. Nadie
+ * fuera del proceso los lee, asi que el drenador solo lo acepta con
+ * {@code app.outbox.drainer.allow-memory-sink=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.sink", havingValue = "memory", matchIfMissing = true)
+public class InMemoryUserEventSink implements UserEventSink {
+
+    private final int capacity;
+    private final Deque<UserOutboxEvent> events = new ArrayDeque<>();
+
+    @Autowired
+    public InMemoryUserEventSink(@Value("${app.outbox.sink.memory.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void publish(List<UserOutboxEvent> batch) {
+        for (UserOutboxEvent event : batch) {
+            if (events.size() == capacity) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+        }
+    }
+
+    /**
+     * @return copia de los eventos guardados, del mas antiguo al mas reciente
+     */
+    public synchronized List<UserOutboxEvent> events() {
+        return new ArrayList<>(events);
+    }
+}
@@ -0,0 +1,26 @@
+package com.cotic.backend.usersapp.backend_usersapp.outbox;
+
+import java.util.List;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.UserOutboxEvent;
+
+/**
+ * Destino de los eventos de {@code user_outbox} (cola, fichero, etc.). Se
+ * elige con {@code app.outbox.sink} ({@code memory} o {@code file}); para
+ * otro destino se declara un bean que implemente esta interfaz y se da a
+ * {@code app.outbox.sink} otro valor.
+ * <p>
+ * La entrega es al menos una vez: si {@link #publish(List)} falla, o el
+ * proceso cae antes de borrar el lote, el lote completo se vuelve a enviar.
+ * Los consumidores deben tolerar duplicados (el id del evento sirve para
+ * descartarlos).
+ */
+public interface UserEventSink {
+
+    /**
+     * @param batch eventos en orden de id; los de un mismo usuario estan en
+     *              el orden en que se confirmaron sus cambios
+     * @throws Exception si el lote no se pudo entregar (se reintenta entero)
+     */
+    void publish(List<UserOutboxEvent> batch) throws Exception;
+}
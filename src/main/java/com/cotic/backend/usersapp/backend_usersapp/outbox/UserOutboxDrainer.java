@@ -0,0 +1,211 @@
+package com.cotic.backend.usersapp.backend_usersapp.outbox;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.UserOutboxEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publica las filas de {@code user_outbox} en el {@link UserEventSink} por
+ * lotes de {@code app.outbox.batch-size}, en orden de id, y las borra una vez
+ * entregadas. Si el destino falla el lote se reintenta en la siguiente pasada.
+ * <p>
+ * Cada lote se publica y se borra en una transaccion que bloquea la fila
+ * {@code user_outbox} de {@code outbox_lock} con {@code skip locked}: con
+ * varias instancias solo una drena a la vez y las demas se saltan la pasada,
+ * asi que los lotes no se solapan ni se desordenan por usuario.
+ * <p>
+ * El destino {@code memory} no lo lee nadie fuera del proceso: drenar a el
+ * descartaria los eventos. Por eso el arranque falla si el drenador esta
+ * activo con ese destino sin {@code app.outbox.drainer.allow-memory-sink}
+ * (solo desarrollo/tests).
+ * <p>
+ * Metricas: {@code outbox.batch.size}, {@code outbox.lag} (desde que se
+ * confirmo el cambio hasta que se entrego), {@code outbox.published},
+ * {@code outbox.failures} y {@code outbox.pending} (contado como mucho cada
+ * {@link #PENDING_REFRESH} y hasta {@link #PENDING_LIMIT} filas, para que
+ * leer la metrica no recorra una tabla atrasada en cada scrape).
+ */
+@Component
+@Lazy(false)
+public class UserOutboxDrainer implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(UserOutboxDrainer.class);
+
+    private static final String SELECT = "select id, user_id, type, username, created_at from user_outbox"
+            + " order by id limit ?";
+
+    private static final String LOCK_NAME = "user_outbox";
+
+    static final Duration PENDING_REFRESH = Duration.ofSeconds(10);
+    static final int PENDING_LIMIT = 100_000;
+
+    private static final String COUNT_PENDING = "select count(*) from"
+            + " (select id from user_outbox order by id limit ?) pending";
+
+    private static final RowMapper<UserOutboxEvent> ROW_MAPPER = (rs, i) -> new UserOutboxEvent(
+            rs.getLong("id"), rs.getLong("user_id"), rs.getString("type"), rs.getString("username"),
+            rs.getTimestamp("created_at").toInstant());
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final UserEventSink sink;
+    private final boolean enabled;
+    private final int batchSize;
+
+    private DistributionSummary batchSizes;
+    private Timer lag;
+    private Counter published;
+    private Counter failures;
+
+    private volatile long pending;
+    private final AtomicLong nextPendingCount = new AtomicLong(System.nanoTime());
+
+    @Autowired
+    public UserOutboxDrainer(JdbcTemplate jdbc, NamedParameterJdbcTemplate namedJdbc,
+            TransactionTemplate transactionTemplate, UserEventSink sink,
+            @Value("${app.outbox.drainer.enabled:true}") boolean enabled,
+            @Value("${app.outbox.drainer.allow-memory-sink:false}") boolean allowMemorySink,
+            @Value("${app.outbox.batch-size:500}") int batchSize) {
+        if (enabled && sink instanceof InMemoryUserEventSink && !allowMemorySink) {
+            throw new IllegalStateException("app.outbox.sink=memory descartaria los eventos de user_outbox. "
+                    + "Configure otro destino o desactive el drenador con app.outbox.drainer.enabled=false");
+        }
+        this.jdbc = jdbc;
+        this.namedJdbc = namedJdbc;
+        this.transactionTemplate = transactionTemplate;
+        this.sink = sink;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval:PT1S}")
+    public void scheduledDrain() {
+        if (enabled) {
+            drain();
+        }
+    }
+
+    /**
+     * Publica lotes hasta vaciar la tabla, hasta que falle el destino o hasta
+     * que otra instancia tenga el bloqueo.
+     *
+     * @return eventos publicados
+     */
+    public synchronized int drain() {
+        int total = 0;
+        int count;
+        do {
+            count = drainBatch();
+            total += count;
+        } while (count == batchSize);
+        return total;
+    }
+
+    private int drainBatch() {
+        Integer count = transactionTemplate.execute(status -> {
+            if (!lock()) {
+                return 0;
+            }
+            List<UserOutboxEvent> batch = jdbc.query(SELECT, ROW_MAPPER, batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            try {
+                sink.publish(batch);
+            } catch (Exception e) {
+                if (failures != null) {
+                    failures.increment();
+                }
+                log.warn("No se pudo publicar un lote de {} eventos de usuario, se reintentara: {}", batch.size(),
+                        e.getMessage());
+                return 0;
+            }
+            // si el proceso cae antes del commit el lote se vuelve a publicar (al menos una vez)
+            namedJdbc.update("delete from user_outbox where id in (:ids)",
+                    Map.of("ids", batch.stream().map(UserOutboxEvent::getId).toList()));
+
+            if (batchSizes != null) {
+                Instant now = Instant.now();
+                batchSizes.record(batch.size());
+                published.increment(batch.size());
+                batch.forEach(event -> lag.record(Duration.between(event.getCreatedAt(), now)));
+            }
+            return batch.size();
+        });
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Bloquea la fila del outbox hasta el final de la transaccion; la crea si
+     * no existe.
+     *
+     * @return false si otra instancia la tiene bloqueada
+     */
+    private boolean lock() {
+        String select = "select name from outbox_lock where name = ? for update skip locked";
+        if (!jdbc.queryForList(select, String.class, LOCK_NAME).isEmpty()) {
+            return true;
+        }
+        try {
+            // la fila insertada queda bloqueada por esta transaccion
+            jdbc.update("insert into outbox_lock (name) values (?)", LOCK_NAME);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // existe y esta bloqueada, o la creo otra instancia entretanto
+            return !jdbc.queryForList(select, String.class, LOCK_NAME).isEmpty();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        batchSizes = DistributionSummary.builder("outbox.batch.size")
+                .description("Eventos por lote publicado")
+                .register(registry);
+        lag = Timer.builder("outbox.lag")
+                .description("Tiempo desde el cambio hasta su publicacion")
+                .register(registry);
+        published = Counter.builder("outbox.published").register(registry);
+        failures = Counter.builder("outbox.failures")
+                .description("Lotes que el destino no acepto")
+                .register(registry);
+        Gauge.builder("outbox.pending", this, UserOutboxDrainer::pending)
+                .description("Eventos pendientes de publicar (como mucho " + PENDING_LIMIT + ")")
+                .register(registry);
+    }
+
+    // la consulta la hace solo quien gana el CAS, como mucho una vez por PENDING_REFRESH
+    long pending() {
+        long now = System.nanoTime();
+        long next = nextPendingCount.get();
+        if (now - next >= 0 && nextPendingCount.compareAndSet(next, now + PENDING_REFRESH.toNanos())) {
+            Long count = jdbc.queryForObject(COUNT_PENDING, Long.class, PENDING_LIMIT);
+            pending = count != null ? count : 0;
+        }
+        return pending;
+    }
+}
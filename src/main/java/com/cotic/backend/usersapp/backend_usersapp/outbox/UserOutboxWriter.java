@@ -0,0 +1,88 @@
+package com.cotic.backend.usersapp.backend_usersapp.outbox;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.UserOutboxEvent;
+import com.cotic.backend.usersapp.backend_usersapp.services.UserChangedEvent;
+
+/**
+ * Escribe cada {@link UserChangedEvent} en {@code user_outbox} dentro de la
+ * transaccion que hizo el cambio: si la transaccion se deshace, el evento
+ * tampoco queda.
+ * <p>
+ * Los eventos de una transaccion se acumulan y se insertan con un solo batch
+ * JDBC justo antes del commit (un alta masiva de 500 filas son 500 eventos).
+ * Las filas de un mismo usuario quedan en orden de id: dos transacciones
+ * sobre el mismo usuario se serializan por el bloqueo de su fila.
+ * <p>
+ * Con {@code app.outbox.enabled=false} no se escribe nada: sin ningun
+ * drenador con un destino real la tabla solo creceria.
+ */
+@Component
+public class UserOutboxWriter {
+
+    private static final String INSERT = "insert into user_outbox (user_id, type, username, created_at)"
+            + " values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+
+    @Autowired
+    public UserOutboxWriter(JdbcTemplate jdbc, @Value("${app.outbox.enabled:true}") boolean enabled) {
+        this.jdbc = jdbc;
+        this.enabled = enabled;
+    }
+
+    // sincrono: se ejecuta en la transaccion del que publica el evento
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (!enabled || event.getId() == null) {
+            return;
+        }
+        UserOutboxEvent row = new UserOutboxEvent(null, event.getId(), event.getType().name(), event.getUsername(),
+                Instant.now());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(List.of(row));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<UserOutboxEvent> pending = (List<UserOutboxEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<UserOutboxEvent> batch = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    insert(batch);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UserOutboxWriter.this);
+                }
+            });
+            pending = batch;
+        }
+        pending.add(row);
+    }
+
+    private void insert(List<UserOutboxEvent> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate(INSERT, rows.stream()
+                .map(r -> new Object[] { r.getUserId(), r.getType(), r.getUsername(), Timestamp.from(r.getCreatedAt()) })
+                .toList());
+    }
+}
@@ -0,0 +1,37 @@
+package com.cotic.backend.usersapp.backend_usersapp.repositories;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.RefreshToken;
+
+public interface RefreshTokenRepository extends CrudRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * Marca el token como usado solo si nadie lo ha hecho antes.
+     *
+     * @return 1 si esta llamada gano la rotacion, 0 si ya estaba usado
+     */
+    @Modifying
+    @Query("update RefreshToken r set r.used = true where r.id = ?1 and r.used = false and r.revoked = false")
+    int markUsed(Long id);
+
+    @Modifying
+    @Query("update RefreshToken r set r.revoked = true where r.familyId = ?1")
+    int revokeFamily(String familyId);
+
+    @Modifying
+    @Query("update RefreshToken r set r.revoked = true where r.username = ?1")
+    int revokeByUsername(String username);
+
+    @Modifying
+    @Query("delete from RefreshToken r where r.expiresAt <= ?1")
+    int deleteExpired(Instant now);
+
+}
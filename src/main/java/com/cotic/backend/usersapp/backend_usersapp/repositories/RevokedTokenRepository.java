@@ -0,0 +1,21 @@
+package com.cotic.backend.usersapp.backend_usersapp.repositories;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.RevokedToken;
+
+public interface RevokedTokenRepository extends CrudRepository<RevokedToken, String> {
+
+    @Query("select r.jti from RevokedToken r where r.expiresAt > ?1")
+    List<String> findActiveJtis(Instant now);
+
+    @Modifying
+    @Query("delete from RevokedToken r where r.expiresAt <= ?1")
+    int deleteExpired(Instant now);
+
+}
@@ -1,17 +1,139 @@
 package com.cotic.backend.usersapp.backend_usersapp.repositories;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserChange;
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserDto;
 import com.cotic.backend.usersapp.backend_usersapp.models.entities.User;
 
+import jakarta.persistence.QueryHint;
+
 public interface UserRepository extends CrudRepository<User, Long> {
 
+    // region de la cache de consultas (si app.jpa.second-level-cache.enabled)
+    String QUERY_CACHE_REGION = "user-queries";
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION) })
     Optional<User> findByUsername(String username);
 
-    @Query("select u from User u where u.username=?1")
+    // con sus roles en la misma consulta (JpaUserDetailsService)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION) })
+    @Query("select u from User u left join fetch u.roles where u.username=?1")
     Optional<User> getUserByUsername(String username);
 
+    // admin se calcula en la misma consulta: sin cargar roles por usuario
+    String USER_DTO = "new com.cotic.backend.usersapp.backend_usersapp.models.dto.UserDto(u.id, u.username, u.email,"
+            + " case when exists (select r from u.roles r where r.name = 'ROLE_ADMIN') then true else false end,"
+            + " u.version)";
+
+    @Query("select " + USER_DTO + " from User u order by u.id")
+    List<UserDto> findAllDtos();
+
+    @Query("select " + USER_DTO + " from User u where u.id = ?1")
+    Optional<UserDto> findDtoById(Long id);
+
+    @Query("select " + USER_DTO + " from User u where u.id in ?1")
+    List<UserDto> findDtosByIdIn(Collection<Long> ids);
+
+    // para responder 304 sin cargar el usuario
+    @Query("select u.version from User u where u.id = ?1")
+    Optional<Long> findVersionById(Long id);
+
+    /**
+     * Pagina por cursor (keyset): usuarios con id mayor que {@code after}, en
+     * orden de id. Los filtros null se ignoran; username y email son patrones
+     * LIKE en minusculas (con {@code \} como escape).
+     */
+    @Query("select " + USER_DTO + " from User u where u.id > ?1"
+            + " and (?2 is null or lower(u.username) like ?2 escape '\\')"
+            + " and (?3 is null or lower(u.email) like ?3 escape '\\')"
+            + " and (?4 is null"
+            + " or (?4 = true and exists (select r from u.roles r where r.name = 'ROLE_ADMIN'))"
+            + " or (?4 = false and not exists (select r from u.roles r where r.name = 'ROLE_ADMIN')))"
+            + " order by u.id")
+    List<UserDto> findPage(Long after, String username, String email, Boolean admin, Limit limit);
+
+    /**
+     * Usuarios cambiados en (since, until], en orden de modSeq
+     * (GET /users/changes).
+     */
+    @Query("select new com.cotic.backend.usersapp.backend_usersapp.models.dto.UserChange(u.id, u.username, u.email,"
+            + " case when exists (select r from u.roles r where r.name = 'ROLE_ADMIN') then true else false end,"
+            + " u.modSeq) from User u where u.modSeq > ?1 and u.modSeq <= ?2 order by u.modSeq")
+    List<UserChange> findChanges(long since, long until, Limit limit);
+
+    /**
+     * Cursor para la exportacion: filas de a {@code fetch_size} sin guardarlas
+     * en el contexto de persistencia. Se debe consumir dentro de una
+     * transaccion y cerrar. En MySQL requiere {@code useCursorFetch=true} en
+     * la URL para que el driver respete el fetch size.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    @Query("select " + USER_DTO + " from User u where u.id > ?1 order by u.id")
+    Stream<UserDto> streamAfter(Long after);
+
+    @Modifying
+    @Query("update User u set u.password=?2 where u.username=?1")
+    int updatePassword(String username, String password);
+
+    /**
+     * Edita el usuario en una sola sentencia y sube su version. Con
+     * {@code version} no null solo se aplica si coincide con la guardada.
+     *
+     * @return filas modificadas (0 si no existe o cambio la version)
+     */
+    @Modifying
+    @Query("update User u set u.username = :username, u.email = :email, u.version = u.version + 1"
+            + " where u.id = :id and (:version is null or u.version = :version)")
+    int updateProfile(@Param("id") Long id, @Param("username") String username, @Param("email") String email,
+            @Param("version") Long version);
+
+    /**
+     * Marca el usuario como cambiado en {@code modSeq}, tras un
+     * {@link #updateProfile} que si modifico la fila.
+     */
+    @Modifying
+    @Query("update User u set u.modSeq = ?2 where u.id = ?1")
+    int updateModSeq(Long id, long modSeq);
+
+    /**
+     * Hibernate borra antes las filas de {@code users_roles} del usuario.
+     *
+     * @return filas borradas (0 si no existia)
+     */
+    @Modifying
+    @Query("delete from User u where u.id = ?1")
+    int deleteUserById(Long id);
+
+    // los roles se ajustan por diferencia: solo se tocan las filas que cambian.
+    // El hint limita la invalidacion de la cache de segundo nivel a users_roles
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "users_roles"))
+    @Query(nativeQuery = true, value = "delete from users_roles where user_id = :id and role_id not in (:roleIds)")
+    int deleteRolesNotIn(@Param("id") Long id, @Param("roleIds") Collection<Long> roleIds);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "users_roles"))
+    @Query(nativeQuery = true, value = "insert into users_roles (user_id, role_id)"
+            + " select :id, r.id from roles r where r.id in (:roleIds)"
+            + " and not exists (select 1 from users_roles ur where ur.user_id = :id and ur.role_id = r.id)")
+    int insertMissingRoles(@Param("id") Long id, @Param("roleIds") Collection<Long> roleIds);
+
 }
@@ -0,0 +1,20 @@
+package com.cotic.backend.usersapp.backend_usersapp.repositories;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.UserTokenRevocation;
+
+public interface UserTokenRevocationRepository extends CrudRepository<UserTokenRevocation, String> {
+
+    List<UserTokenRevocation> findByExpiresAtAfter(Instant now);
+
+    @Modifying
+    @Query("delete from UserTokenRevocation r where r.expiresAt <= ?1")
+    int deleteExpired(Instant now);
+
+}
@@ -0,0 +1,30 @@
+package com.cotic.backend.usersapp.backend_usersapp.repositories;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.UserTombstone;
+
+public interface UserTombstoneRepository extends CrudRepository<UserTombstone, Long> {
+
+    // insert directo: save() haria antes un select por ser un id asignado
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into user_tombstones (user_id, mod_seq, deleted_at) values (?1, ?2, ?3)")
+    int insert(Long userId, long modSeq, Instant deletedAt);
+
+    @Query("select t from UserTombstone t where t.modSeq > ?1 and t.modSeq <= ?2 order by t.modSeq")
+    List<UserTombstone> findChanges(long since, long until, Limit limit);
+
+    @Query("select max(t.modSeq) from UserTombstone t where t.deletedAt < ?1")
+    Long findMaxModSeqDeletedBefore(Instant cutoff);
+
+    @Modifying
+    @Query("delete from UserTombstone t where t.modSeq <= ?1")
+    int deleteThrough(long modSeq);
+
+}
@@ -0,0 +1,20 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+/**
+ * El cursor de {@code GET /users/changes} es anterior a las bajas ya
+ * purgadas: el consumidor debe volver a descargar el directorio completo.
+ */
+public class ChangeCursorExpiredException extends RuntimeException {
+
+    private final long prunedThrough;
+
+    public ChangeCursorExpiredException(long since, long prunedThrough) {
+        super("El cursor " + since + " es anterior a " + prunedThrough
+                + "; hay que volver a sincronizar el directorio completo");
+        this.prunedThrough = prunedThrough;
+    }
+
+    public long getPrunedThrough() {
+        return prunedThrough;
+    }
+}
@@ -0,0 +1,125 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Asigna los valores de {@code users.mod_seq} (y de las bajas en
+ * {@code user_tombstones}) desde la tabla {@code change_sequence}.
+ * <p>
+ * No es una secuencia de la BD: el UPDATE del contador bloquea su fila hasta
+ * que la transaccion termina, asi que las transacciones que modifican
+ * usuarios confirman en el orden de sus valores. Por eso un consumidor de
+ * {@code GET /users/changes} que ya vio el valor N no puede recibir despues
+ * un cambio con un valor menor. El coste es que las escrituras de usuarios
+ * se serializan en esa fila; las lecturas no se ven afectadas.
+ */
+@Service
+public class ChangeSequenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeSequenceService.class);
+
+    static final String USERS = "users";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public ChangeSequenceService(JdbcTemplate jdbc, TransactionTemplate transactionTemplate,
+            EntityManagerFactory entityManagerFactory) {
+        this.jdbc = jdbc;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long next() {
+        return allocate(1);
+    }
+
+    /**
+     * Reserva {@code count} valores consecutivos. Debe llamarse dentro de la
+     * transaccion que los usa, lo mas tarde posible: la fila queda bloqueada
+     * hasta el commit.
+     *
+     * @return el primero de los valores reservados
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long allocate(int count) {
+        if (jdbc.update("update change_sequence set seq_value = seq_value + ? where name = ?", count, USERS) == 0) {
+            try {
+                jdbc.update("insert into change_sequence (name, seq_value, pruned_through) values (?, ?, 0)",
+                        USERS, count);
+            } catch (DuplicateKeyException e) {
+                // otra transaccion creo la fila entretanto
+                jdbc.update("update change_sequence set seq_value = seq_value + ? where name = ?", count, USERS);
+            }
+        }
+        Long last = jdbc.queryForObject("select seq_value from change_sequence where name = ?", Long.class, USERS);
+        return last - count + 1;
+    }
+
+    /**
+     * Registra que ya no quedan bajas con valor menor o igual a
+     * {@code through}: los cursores anteriores dejan de ser validos.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markPruned(long through) {
+        jdbc.update("update change_sequence set pruned_through = ? where name = ? and pruned_through < ?",
+                through, USERS, through);
+    }
+
+    /**
+     * @return ultimo valor confirmado (todo cambio con un valor menor o igual
+     *         ya es visible) y hasta donde se purgaron las bajas
+     */
+    public Position position() {
+        List<Position> rows = jdbc.query("select seq_value, pruned_through from change_sequence where name = ?",
+                (rs, i) -> new Position(rs.getLong("seq_value"), rs.getLong("pruned_through")), USERS);
+        return rows.isEmpty() ? new Position(0, 0) : rows.get(0);
+    }
+
+    /**
+     * Da valor a los usuarios que no lo tienen: los de data.sql, los de una
+     * BD anterior a la columna o los insertados fuera de la aplicacion.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Integer updated = transactionTemplate.execute(status -> {
+            List<Long> ids = jdbc.queryForList(
+                    "select id from users where mod_seq is null or mod_seq = 0 order by id", Long.class);
+            long modSeq = allocate(ids.size());
+            List<Object[]> values = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                values.add(new Object[] { modSeq++, id });
+            }
+            jdbc.batchUpdate("update users set mod_seq = ? where id = ?", values);
+            return ids.size();
+        });
+        if (updated != null && updated > 0) {
+            // las filas cambiaron por JDBC: la cache de segundo nivel no lo sabe
+            entityManagerFactory.getCache().evict(User.class);
+            log.info("Asignado mod_seq a {} usuarios", updated);
+        }
+    }
+
+    public record Position(long value, long prunedThrough) {
+    }
+}
@@ -6,9 +6,9 @@ import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -17,30 +17,66 @@ import org.springframework.transaction.annotation.Transactional;
 import com.cotic.backend.usersapp.backend_usersapp.repositories.UserRepository;
 
 @Service
-public class JpaUserDetailsService implements UserDetailsService {
+public class JpaUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository repository;
+    private final UserDetailsCache cache;
+    private final RoleRegistry roleRegistry;
 
     @Autowired
-    public JpaUserDetailsService(UserRepository repository) {
+    public JpaUserDetailsService(UserRepository repository, UserDetailsCache cache, RoleRegistry roleRegistry) {
         this.repository = repository;
+        this.cache = cache;
+        this.roleRegistry = roleRegistry;
     }
 
+    /**
+     * Sin {@code readOnly}: con replicas ({@code ReplicaRoutingDataSource})
+     * una transaccion de solo lectura iria a una replica, y el login es
+     * anonimo, asi que no le aplica la lectura de sus propias escrituras. Un
+     * usuario recien creado podria no estar aun en la replica y ese "no
+     * existe" quedaria en la cache de ausentes durante {@code missing-ttl}.
+     * Las credenciales se leen siempre de la primaria; la cache evita la
+     * mayoria de esas lecturas.
+     */
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(noRollbackFor = UsernameNotFoundException.class)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetails cached = cache.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        if (cache.isKnownMissing(username)) {
+            throw new UsernameNotFoundException(String.format("Username %s no existe en el sistema!", username));
+        }
+
         Optional<com.cotic.backend.usersapp.backend_usersapp.models.entities.User> o = repository
                 .getUserByUsername(username);
         if (!o.isPresent()) {
+            cache.putMissing(username);
             throw new UsernameNotFoundException(String.format("Username %s no existe en el sistema!", username));
         }
 
         com.cotic.backend.usersapp.backend_usersapp.models.entities.User user = o.orElseThrow();
 
-        List<GrantedAuthority> authorities = user.getRoles().stream().map(r -> new SimpleGrantedAuthority(r.getName()))
+        List<GrantedAuthority> authorities = user.getRoles().stream().map(r -> roleRegistry.authority(r.getName()))
                 .collect(Collectors.toList());
 
-        return new User(user.getUsername(), user.getPassword(), true, true, true, true, authorities);
+        UserDetails details = new User(user.getUsername(), user.getPassword(), true, true, true, true, authorities);
+        cache.put(user.getId(), details);
+        return details;
+    }
+
+    /**
+     * Lo llama el {@code DaoAuthenticationProvider} tras un login correcto
+     * cuando el hash guardado tiene un coste distinto al calibrado.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        repository.updatePassword(user.getUsername(), newPassword);
+        cache.invalidate(user.getUsername());
+        return User.withUserDetails(user).password(newPassword).build();
     }
 
 }
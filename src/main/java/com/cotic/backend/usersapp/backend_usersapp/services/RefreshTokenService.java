@@ -0,0 +1,148 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cotic.backend.usersapp.backend_usersapp.auth.JwtTokenCodec;
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.RefreshToken;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.RefreshTokenRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Refresh tokens rotativos.
+ * <p>
+ * El login (con BCrypt) entrega un token de acceso de vida corta y un refresh
+ * token opaco. {@code /auth/refresh} cambia el refresh token por un par nuevo
+ * sin volver a verificar la contrasena. Cada refresh token se puede usar una
+ * sola vez: si se presenta uno ya rotado se revoca toda su familia (todos los
+ * derivados del mismo login), porque indica que alguien mas lo tiene.
+ */
+@Service
+@Lazy(false)
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository repository;
+    private final UserDetailsService userDetailsService;
+    private final JwtTokenCodec tokenCodec;
+    private final Duration refreshTokenTtl;
+
+    @Autowired
+    public RefreshTokenService(RefreshTokenRepository repository, UserDetailsService userDetailsService,
+            JwtTokenCodec tokenCodec, @Value("${app.jwt.refresh-token-ttl:P14D}") Duration refreshTokenTtl) {
+        this.repository = repository;
+        this.userDetailsService = userDetailsService;
+        this.tokenCodec = tokenCodec;
+        this.refreshTokenTtl = refreshTokenTtl;
+    }
+
+    /**
+     * Emite el refresh token de un login nuevo (familia nueva).
+     */
+    @Transactional
+    public String issue(String username) {
+        return issue(username, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Rota el refresh token y emite un token de acceso nuevo.
+     *
+     * @return vacio si el refresh token no existe, expiro, fue revocado o ya
+     *         se habia usado
+     */
+    @Transactional
+    public Optional<TokenPair> refresh(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return Optional.empty();
+        }
+        Optional<RefreshToken> o = repository.findByTokenHash(hash(refreshToken));
+        if (!o.isPresent()) {
+            return Optional.empty();
+        }
+        RefreshToken current = o.orElseThrow();
+        if (current.isRevoked() || current.getExpiresAt().isBefore(Instant.now())) {
+            return Optional.empty();
+        }
+        if (repository.markUsed(current.getId()) == 0) {
+            // reutilizacion de un token ya rotado
+            repository.revokeFamily(current.getFamilyId());
+            return Optional.empty();
+        }
+
+        UserDetails user;
+        try {
+            user = userDetailsService.loadUserByUsername(current.getUsername());
+        } catch (UsernameNotFoundException e) {
+            repository.revokeFamily(current.getFamilyId());
+            return Optional.empty();
+        }
+        try {
+            String accessToken = tokenCodec.createToken(user.getUsername(), user.getAuthorities());
+            return Optional.of(new TokenPair(user.getUsername(), accessToken,
+                    issue(user.getUsername(), current.getFamilyId())));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Revoca la familia del refresh token indicado (logout).
+     */
+    @Transactional
+    public void revoke(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return;
+        }
+        repository.findByTokenHash(hash(refreshToken)).ifPresent(r -> repository.revokeFamily(r.getFamilyId()));
+    }
+
+    @Transactional
+    public void revokeAllForUser(String username) {
+        repository.revokeByUsername(username);
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.refresh-token-cleanup-interval:PT1H}")
+    @Transactional
+    public void deleteExpired() {
+        repository.deleteExpired(Instant.now());
+    }
+
+    private String issue(String username, String familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        repository.save(new RefreshToken(hash(token), username, familyId, Instant.now().plus(refreshTokenTtl)));
+        return token;
+    }
+
+    // el token tiene 256 bits aleatorios: basta un hash rapido, no BCrypt
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record TokenPair(String username, String accessToken, String refreshToken) {
+    }
+}
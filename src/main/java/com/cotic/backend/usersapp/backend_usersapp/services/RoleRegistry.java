@@ -0,0 +1,100 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.Role;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.RoleRepository;
+
+/**
+ * Roles en memoria: la tabla {@code roles} casi nunca cambia, asi que se lee
+ * al arrancar y se recarga periodicamente o bajo demanda
+ * ({@code POST /actuator/roles}).
+ * <p>
+ * Devuelve las entidades {@link Role} (desasociadas, solo para referenciarlas
+ * desde {@code users_roles}) y una unica instancia de
+ * {@link GrantedAuthority} por rol, compartida por todos los usuarios.
+ */
+@Component
+@Lazy(false)
+public class RoleRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleRegistry.class);
+
+    private final RoleRepository roleRepository;
+
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public RoleRegistry(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    public Optional<Role> findByName(String name) {
+        return Optional.ofNullable(current().roles.get(name));
+    }
+
+    /**
+     * @return la instancia compartida del rol, o una nueva si el rol no
+     *         esta en la tabla
+     */
+    public GrantedAuthority authority(String name) {
+        GrantedAuthority authority = current().authorities.get(name);
+        return authority != null ? authority : new SimpleGrantedAuthority(name);
+    }
+
+    public Map<String, Long> names() {
+        Map<String, Long> names = new LinkedHashMap<>();
+        current().roles.forEach((name, role) -> names.put(name, role.getId()));
+        return names;
+    }
+
+    // tras DataInitializer, que puede insertar los roles
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.security.roles.refresh-interval:PT10M}",
+            initialDelayString = "${app.security.roles.refresh-interval:PT10M}")
+    public void refresh() {
+        Map<String, Role> roles = new LinkedHashMap<>();
+        Map<String, GrantedAuthority> authorities = new LinkedHashMap<>();
+        Snapshot previous = snapshot;
+        StreamSupport.stream(roleRepository.findAll().spliterator(), false).forEach(role -> {
+            roles.put(role.getName(), role);
+            // se conserva la instancia anterior si el rol ya existia
+            GrantedAuthority authority = previous != null ? previous.authorities.get(role.getName()) : null;
+            authorities.put(role.getName(), authority != null ? authority : new SimpleGrantedAuthority(role.getName()));
+        });
+        snapshot = new Snapshot(Collections.unmodifiableMap(roles), Collections.unmodifiableMap(authorities));
+        log.debug("Roles cargados: {}", roles.keySet());
+    }
+
+    // las peticiones pueden llegar antes de ApplicationReadyEvent
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                s = snapshot;
+            }
+        }
+        return s;
+    }
+
+    private record Snapshot(Map<String, Role> roles, Map<String, GrantedAuthority> authorities) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code GET /actuator/roles} lista los roles en memoria y
+ * {@code POST /actuator/roles} los recarga tras cambiar la tabla.
+ */
+@Component
+@Endpoint(id = "roles")
+public class RoleRegistryEndpoint {
+
+    private final RoleRegistry registry;
+
+    public RoleRegistryEndpoint(RoleRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Long> roles() {
+        return registry.names();
+    }
+
+    @WriteOperation
+    public Map<String, Long> refresh() {
+        registry.refresh();
+        return registry.names();
+    }
+}
@@ -0,0 +1,237 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cotic.backend.usersapp.backend_usersapp.auth.JwtTokenCodec;
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.RevokedToken;
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.UserTokenRevocation;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.RevokedTokenRepository;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.UserTokenRevocationRepository;
+import com.cotic.backend.usersapp.backend_usersapp.util.BloomFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Lista de revocacion de tokens JWT.
+ * <p>
+ * Los {@code jti} revocados se guardan en la tabla {@code revoked_tokens} y en
+ * un filtro de Bloom en memoria: si el filtro dice que el {@code jti} no esta
+ * (el caso normal) no se consulta la base de datos. Solo los positivos del
+ * filtro se confirman contra la tabla. El filtro se reconstruye
+ * periodicamente a partir de las filas no expiradas, que a su vez se borran
+ * cuando expira el token, asi que su tamano lo acota la vida de los tokens.
+ * Las revocaciones locales se anaden al filtro al confirmarse la transaccion
+ * y se vuelven a anadir al filtro reconstruido si su commit no era visible
+ * para la consulta de {@link #rebuild()}.
+ * <p>
+ * La revocacion de todos los tokens de un usuario se guarda como una fecha de
+ * corte ({@code iat} anterior o igual a ella = revocado) y se mantiene
+ * entera en memoria.
+ * <p>
+ * El filtro y los cortes se cargan por primera vez al arrancar, antes que el
+ * servidor web ({@link #start()}); si la carga falla la aplicacion no
+ * arranca, en lugar de aceptar tokens revocados hasta la primera
+ * reconstruccion.
+ */
+@Service
+@Lazy(false)
+public class TokenRevocationService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final UserTokenRevocationRepository userRevocationRepository;
+    private final RefreshTokenService refreshTokenService;
+    private final JwtTokenCodec tokenCodec;
+    private final TransactionTemplate transactionTemplate;
+    private final double falsePositiveRate;
+
+    // respuestas confirmadas contra la BD para los positivos del filtro
+    private final Cache<String, Boolean> confirmed;
+    private final Map<String, Instant> userCutoffs = new ConcurrentHashMap<>();
+    // jti revocados en esta instancia -> momento en que se confirmo su commit
+    private final Map<String, Instant> recentlyRevoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter bloom;
+    private volatile boolean running;
+
+    @Autowired
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+            UserTokenRevocationRepository userRevocationRepository, RefreshTokenService refreshTokenService,
+            JwtTokenCodec tokenCodec, TransactionTemplate transactionTemplate,
+            @Value("${app.security.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${app.security.revocation.confirmed-ttl:PT30S}") Duration confirmedTtl) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.userRevocationRepository = userRevocationRepository;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenCodec = tokenCodec;
+        this.transactionTemplate = transactionTemplate;
+        this.falsePositiveRate = falsePositiveRate;
+        this.confirmed = Caffeine.newBuilder().maximumSize(10_000).expireAfterWrite(confirmedTtl).build();
+        this.bloom = new BloomFilter(1024, falsePositiveRate);
+    }
+
+    /**
+     * @param jti      id del token (puede ser null en tokens antiguos)
+     * @param username subject del token
+     * @param issuedAt claim iat
+     * @return true si el token fue revocado
+     */
+    public boolean isRevoked(String jti, String username, Date issuedAt) {
+        Instant cutoff = userCutoffs.get(username);
+        if (cutoff != null && (issuedAt == null || !issuedAt.toInstant().isAfter(cutoff))) {
+            return true;
+        }
+        if (jti == null) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(confirmed.getIfPresent(jti))) {
+            return true;
+        }
+        if (!bloom.mightContain(jti)) {
+            return false;
+        }
+        return confirmed.get(jti, revokedTokenRepository::existsById);
+    }
+
+    /**
+     * Revoca un token concreto (logout).
+     */
+    @Transactional
+    public void revoke(String jti, String username, Date expiresAt) {
+        if (jti == null) {
+            return;
+        }
+        Instant expires = expiresAt != null ? expiresAt.toInstant()
+                : Instant.now().plusMillis(tokenCodec.getAccessTokenTtlMillis());
+        revokedTokenRepository.save(new RevokedToken(jti, username, expires));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    revoked(jti);
+                }
+            });
+        } else {
+            revoked(jti);
+        }
+    }
+
+    // antes del commit no se toca el filtro: otra peticion confirmaria
+    // contra la BD que el jti no existe y guardaria ese false
+    private void revoked(String jti) {
+        confirmed.put(jti, Boolean.TRUE);
+        recentlyRevoked.put(jti, Instant.now());
+        // si rebuild() cambia el filtro mientras tanto, se repite sobre el nuevo
+        BloomFilter target;
+        do {
+            target = bloom;
+            target.put(jti);
+        } while (target != bloom);
+    }
+
+    /**
+     * Revoca todos los tokens del usuario emitidos hasta ahora, incluidos sus
+     * refresh tokens.
+     */
+    @Transactional
+    public void revokeAllForUser(String username) {
+        // el iat de los JWT tiene resolucion de segundos
+        Instant cutoff = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Instant expiresAt = cutoff.plusMillis(tokenCodec.getAccessTokenTtlMillis()).plusSeconds(1);
+        userRevocationRepository.save(new UserTokenRevocation(username, cutoff, expiresAt));
+        refreshTokenService.revokeAllForUser(username);
+        // como en revoke(): el corte solo se aplica si la transaccion confirma
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cutoff(username, cutoff);
+                }
+            });
+        } else {
+            cutoff(username, cutoff);
+        }
+    }
+
+    private void cutoff(String username, Instant cutoff) {
+        userCutoffs.merge(username, cutoff, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    /**
+     * Primera carga del filtro, antes de que el servidor web acepte
+     * peticiones. Una excepcion aqui detiene el arranque.
+     */
+    @Override
+    public void start() {
+        transactionTemplate.executeWithoutResult(status -> rebuild());
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // el servidor web arranca en una fase posterior
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    /**
+     * Borra las revocaciones de tokens ya expirados y reconstruye el filtro de
+     * Bloom y los cortes por usuario desde la base de datos (recoge tambien las
+     * revocaciones hechas en otras replicas).
+     */
+    @Scheduled(fixedDelayString = "${app.security.revocation.rebuild-interval:PT1M}")
+    @Transactional
+    public void rebuild() {
+        Instant now = Instant.now();
+        revokedTokenRepository.deleteExpired(now);
+        userRevocationRepository.deleteExpired(now);
+
+        List<String> jtis = revokedTokenRepository.findActiveJtis(now);
+        BloomFilter rebuilt = new BloomFilter(Math.max(1024, jtis.size() * 2L), falsePositiveRate);
+        jtis.forEach(rebuilt::put);
+        bloom = rebuilt;
+        // lo confirmado despues de la consulta puede faltar en jtis; lo
+        // confirmado antes ya esta incluido y deja de hacer falta
+        recentlyRevoked.keySet().forEach(rebuilt::put);
+        recentlyRevoked.values().removeIf(committedAt -> committedAt.isBefore(now));
+
+        Map<String, Instant> cutoffs = new HashMap<>();
+        userRevocationRepository.findByExpiresAtAfter(now)
+                .forEach(r -> cutoffs.put(r.getUsername(), r.getRevokedBefore()));
+        long ttl = tokenCodec.getAccessTokenTtlMillis() + 1000;
+        userCutoffs.values().removeIf(cutoff -> cutoff.plusMillis(ttl).isBefore(now));
+        cutoffs.forEach(this::cutoff);
+
+        log.debug("Filtro de revocacion reconstruido: {} jti, {} cortes por usuario", jtis.size(), cutoffs.size());
+    }
+}
@@ -0,0 +1,362 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cotic.backend.usersapp.backend_usersapp.auth.BoundedPasswordEncoder;
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.BulkImportResult;
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.BulkRowResult;
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.Role;
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.User;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Alta masiva de usuarios (POST /users/bulk).
+ * <p>
+ * La entrada (array JSON o NDJSON) se lee en streaming y se procesa por
+ * lotes de {@code app.users.bulk.batch-size} filas: validacion, unicidad
+ * contra el propio lote y contra la BD (una consulta por lote), hash de las
+ * contrasenas y luego un INSERT por lotes JDBC en una transaccion por lote.
+ * <p>
+ * Los hashes no pasan por el {@code PasswordHashingExecutor} de los logins:
+ * un lote de 500 filas llenaria su cola y los logins recibirian 429 durante
+ * toda la importacion. Tienen su propio pool de
+ * {@code app.users.bulk.hashing-threads} hilos (por defecto la mitad de los
+ * nucleos), compartido por todas las importaciones en curso: los hashes van
+ * en paralelo pero la otra mitad queda para los logins.
+ * <p>
+ * La peticion es sincrona, asi que no se empieza un lote nuevo pasado
+ * {@code app.users.bulk.max-duration}: la respuesta indica en
+ * {@code nextRow} la primera fila sin procesar para reenviar el resto.
+ * <p>
+ * Los ids siguen siendo IDENTITY: el batching JDBC no necesita conocerlos de
+ * antemano (eso solo lo impide en Hibernate). Tras insertar el lote se leen
+ * sus ids con una consulta y se insertan los roles con otro batch.
+ */
+@Service
+public class UserBulkImportService implements DisposableBean {
+
+    private static final ObjectReader USER_READER = new ObjectMapper().readerFor(User.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final String INSERT_USER = "insert into users (username, email, password, mod_seq)"
+            + " values (?, ?, ?, ?)";
+    private static final String INSERT_USER_ROLE = "insert into users_roles (user_id, role_id) values (?, ?)";
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final Validator validator;
+    private final RoleRegistry roleRegistry;
+    private final ApplicationEventPublisher events;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ChangeSequenceService changeSequence;
+    private final int batchSize;
+    private final int maxRows;
+    private final long maxDurationNanos;
+    private final ExecutorService hashingPool;
+
+    @Autowired
+    public UserBulkImportService(JdbcTemplate jdbc, NamedParameterJdbcTemplate namedJdbc,
+            TransactionTemplate transactionTemplate, PasswordEncoder passwordEncoder, Validator validator,
+            RoleRegistry roleRegistry, ApplicationEventPublisher events, EntityManagerFactory entityManagerFactory,
+            ChangeSequenceService changeSequence,
+            @Value("${app.users.bulk.batch-size:500}") int batchSize,
+            @Value("${app.users.bulk.max-rows:100000}") int maxRows,
+            @Value("${app.users.bulk.max-duration:PT1M}") Duration maxDuration,
+            @Value("${app.users.bulk.hashing-threads:0}") int hashingThreads) {
+        this.jdbc = jdbc;
+        this.namedJdbc = namedJdbc;
+        this.transactionTemplate = transactionTemplate;
+        // el encoder sin el pool de los logins: aqui el limite lo pone hashingPool
+        this.passwordEncoder = passwordEncoder instanceof BoundedPasswordEncoder bounded
+                ? bounded.getDelegate() : passwordEncoder;
+        this.validator = validator;
+        this.roleRegistry = roleRegistry;
+        this.events = events;
+        this.entityManagerFactory = entityManagerFactory;
+        this.changeSequence = changeSequence;
+        this.batchSize = batchSize;
+        this.maxRows = maxRows;
+        this.maxDurationNanos = maxDuration.toNanos();
+        // 0: la mitad de los nucleos; el resto queda para el pool de los logins
+        int threads = hashingThreads > 0 ? hashingThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger count = new AtomicInteger();
+        this.hashingPool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "bulk-hashing-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public BulkImportResult importUsers(InputStream in) throws IOException {
+        BulkImportResult result = new BulkImportResult();
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        List<Row> chunk = new ArrayList<>(batchSize);
+        long deadline = System.nanoTime() + maxDurationNanos;
+        int index = 0;
+
+        // readValues recorre tanto un array JSON como valores separados por lineas
+        try (MappingIterator<User> it = USER_READER.readValues(in)) {
+            while (it.hasNextValue()) {
+                if (index >= maxRows) {
+                    result.setError("La entrada no puede superar " + maxRows + " filas");
+                    result.setNextRow(index);
+                    break;
+                }
+                chunk.add(new Row(index++, it.nextValue()));
+                if (chunk.size() == batchSize) {
+                    if (!processChunk(chunk, usernames, emails, result, deadline)) {
+                        return result;
+                    }
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            result.setError("JSON invalido en la fila " + index + ": " + e.getOriginalMessage());
+        }
+        if (!chunk.isEmpty()) {
+            processChunk(chunk, usernames, emails, result, deadline);
+        }
+        return result;
+    }
+
+    // false si se agoto max-duration: el lote no se procesa ni se sigue leyendo
+    private boolean processChunk(List<Row> chunk, Set<String> usernames, Set<String> emails,
+            BulkImportResult result, long deadline) {
+        if (System.nanoTime() - deadline >= 0) {
+            int next = chunk.get(0).index;
+            result.setError("Tiempo maximo de la importacion agotado: reenvie las filas desde la " + next);
+            result.setNextRow(next);
+            return false;
+        }
+        List<Row> valid = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (validate(row, usernames, emails)) {
+                valid.add(row);
+            }
+        }
+        rejectExisting(valid);
+        valid.removeIf(row -> row.errors != null);
+
+        hash(valid);
+
+        if (!valid.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(valid));
+            } catch (DataIntegrityViolationException e) {
+                // otra peticion inserto el mismo username/email entretanto: fila a fila
+                valid.forEach(this::insertOne);
+            }
+            // los INSERT JDBC no pasan por Hibernate: la cache de consultas por
+            // username podria tener guardado "no existe"
+            entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class)
+                    .evictQueryRegion(UserRepository.QUERY_CACHE_REGION);
+        }
+
+        for (Row row : chunk) {
+            BulkRowResult r = new BulkRowResult(row.index, row.user != null ? row.user.getUsername() : null);
+            if (row.errors == null && row.id != null) {
+                r.setStatus(BulkRowResult.CREATED);
+                r.setId(row.id);
+                result.setCreated(result.getCreated() + 1);
+            } else {
+                r.setStatus(BulkRowResult.ERROR);
+                r.setErrors(row.errors);
+                result.setFailed(result.getFailed() + 1);
+            }
+            result.getResults().add(r);
+        }
+        return true;
+    }
+
+    // el hash es lo caro: se reparte entre los hilos de hashingPool
+    private void hash(List<Row> rows) {
+        List<Future<?>> pending = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            pending.add(hashingPool.submit(() -> {
+                row.hash = passwordEncoder.encode(row.user.getPassword());
+            }));
+        }
+        try {
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            pending.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando el hash de las contrasenas", e);
+        } catch (ExecutionException e) {
+            pending.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private boolean validate(Row row, Set<String> usernames, Set<String> emails) {
+        if (row.user == null) {
+            row.error("user", "La fila debe ser un objeto");
+            return false;
+        }
+        for (ConstraintViolation<User> violation : validator.validate(row.user)) {
+            String field = violation.getPropertyPath().toString();
+            row.error(field, "El campo " + field + " " + violation.getMessage());
+        }
+        if (row.errors != null) {
+            return false;
+        }
+        if (!usernames.add(row.user.getUsername())) {
+            row.error("username", "El username esta repetido en la entrada");
+        }
+        if (!emails.add(row.user.getEmail())) {
+            row.error("email", "El email esta repetido en la entrada");
+        }
+        return row.errors == null;
+    }
+
+    private void rejectExisting(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("usernames", rows.stream().map(r -> r.user.getUsername()).toList());
+        params.put("emails", rows.stream().map(r -> r.user.getEmail()).toList());
+        Set<String> existingUsernames = new HashSet<>(namedJdbc.queryForList(
+                "select username from users where username in (:usernames)", params, String.class));
+        Set<String> existingEmails = new HashSet<>(namedJdbc.queryForList(
+                "select email from users where email in (:emails)", params, String.class));
+        for (Row row : rows) {
+            if (existingUsernames.contains(row.user.getUsername())) {
+                row.error("username", "El username ya existe");
+            }
+            if (existingEmails.contains(row.user.getEmail())) {
+                row.error("email", "El email ya existe");
+            }
+        }
+    }
+
+    private void insert(List<Row> rows) {
+        long modSeq = changeSequence.allocate(rows.size());
+        List<Object[]> values = new ArrayList<>(rows.size());
+        for (Row r : rows) {
+            values.add(new Object[] { r.user.getUsername(), r.user.getEmail(), r.hash, modSeq++ });
+        }
+        jdbc.batchUpdate(INSERT_USER, values);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("usernames", rows.stream().map(r -> r.user.getUsername()).toList());
+        Map<String, Long> ids = new HashMap<>();
+        namedJdbc.query("select id, username from users where username in (:usernames)", params,
+                rs -> {
+                    ids.put(rs.getString("username"), rs.getLong("id"));
+                });
+
+        List<Object[]> userRoles = new ArrayList<>();
+        for (Row row : rows) {
+            row.id = ids.get(row.user.getUsername());
+            for (Long roleId : roleIds(row.user)) {
+                userRoles.add(new Object[] { row.id, roleId });
+            }
+        }
+        jdbc.batchUpdate(INSERT_USER_ROLE, userRoles);
+        publishCreated(rows);
+    }
+
+    private void insertOne(Row row) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbc.update(INSERT_USER, row.user.getUsername(), row.user.getEmail(), row.hash,
+                        changeSequence.next());
+                row.id = jdbc.queryForObject("select id from users where username = ?", Long.class,
+                        row.user.getUsername());
+                for (Long roleId : roleIds(row.user)) {
+                    jdbc.update(INSERT_USER_ROLE, row.id, roleId);
+                }
+                publishCreated(List.of(row));
+            });
+        } catch (DataIntegrityViolationException e) {
+            row.id = null;
+            row.error("username", "El username o el email ya existe");
+        }
+    }
+
+    // mismos roles que UserServiceImpl.save
+    private List<Long> roleIds(User user) {
+        List<Long> ids = new ArrayList<>(2);
+        roleRegistry.findByName("ROLE_USER").map(Role::getId).ifPresent(ids::add);
+        if (user.isAdmin()) {
+            roleRegistry.findByName("ROLE_ADMIN").map(Role::getId).ifPresent(ids::add);
+        }
+        return ids;
+    }
+
+    // se entregan tras el commit (@TransactionalEventListener)
+    private void publishCreated(List<Row> rows) {
+        for (Row row : rows) {
+            events.publishEvent(new UserChangedEvent(UserChangedEvent.Type.CREATED, row.id, row.user.getUsername()));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        hashingPool.shutdownNow();
+    }
+
+    private static class Row {
+        private final int index;
+        private final User user;
+        private String hash;
+        private Long id;
+        private Map<String, String> errors;
+
+        Row(int index, User user) {
+            this.index = index;
+            this.user = user;
+        }
+
+        void error(String field, String message) {
+            if (errors == null) {
+                errors = new LinkedHashMap<>();
+            }
+            errors.putIfAbsent(field, message);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserChange;
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserChangePage;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.UserRepository;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.UserTombstoneRepository;
+
+/**
+ * Feed de cambios de {@code GET /users/changes}: altas y ediciones (estado
+ * actual del usuario) y bajas (tombstones) con {@code mod_seq} mayor que el
+ * cursor, en orden. El coste depende de los cambios, no del numero de
+ * usuarios: ambas consultas van por el indice de {@code mod_seq}.
+ * <p>
+ * Cada pagina se corta en el ultimo valor confirmado de
+ * {@link ChangeSequenceService}, asi que no puede saltarse un cambio que
+ * confirme despues. Sin cambios nuevos, la consulta termina en esa lectura.
+ * <p>
+ * Con espera (long polling) la peticion queda pendiente hasta que se
+ * confirma un cambio en esta instancia o, para los de otras instancias,
+ * hasta la siguiente comprobacion ({@code app.users.changes.poll-interval}).
+ * Las bajas se purgan pasada {@code app.users.changes.tombstone-retention};
+ * un cursor anterior recibe {@link ChangeCursorExpiredException}, salvo
+ * {@code since=0}: un consumidor sin estado no necesita las bajas de
+ * usuarios que nunca vio.
+ */
+@Service
+@Lazy(false)
+public class UserChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(UserChangeFeed.class);
+
+    private final UserRepository userRepository;
+    private final UserTombstoneRepository tombstoneRepository;
+    private final ChangeSequenceService changeSequence;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Executor executor;
+    private final Duration tombstoneRetention;
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeScheduled = new AtomicBoolean();
+
+    @Autowired
+    public UserChangeFeed(UserRepository userRepository, UserTombstoneRepository tombstoneRepository,
+            ChangeSequenceService changeSequence, PlatformTransactionManager transactionManager,
+            @Qualifier("applicationTaskExecutor") Executor executor,
+            @Value("${app.users.changes.tombstone-retention:P30D}") Duration tombstoneRetention) {
+        this.userRepository = userRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.changeSequence = changeSequence;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.executor = executor;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    /**
+     * @throws ChangeCursorExpiredException si {@code since} es anterior a las
+     *                                      bajas purgadas (y no es 0)
+     */
+    public UserChangePage changes(long since, int limit) {
+        return readOnlyTransaction.execute(status -> page(since, limit, changeSequence.position()));
+    }
+
+    /**
+     * Como {@link #changes(long, int)}, pero si no hay cambios espera hasta
+     * {@code wait} a que los haya. Al vencer devuelve la pagina vacia.
+     */
+    public CompletableFuture<UserChangePage> await(long since, int limit, Duration wait) {
+        UserChangePage page = changes(since, limit);
+        if (!page.getChanges().isEmpty() || wait.isZero() || wait.isNegative()) {
+            return CompletableFuture.completedFuture(page);
+        }
+        Waiter waiter = new Waiter(page.getNext(), limit, new CompletableFuture<>());
+        waiter.result.completeOnTimeout(page, wait.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((result, e) -> waiters.remove(waiter));
+        waiters.add(waiter);
+        // un cambio confirmado entre la consulta y el registro
+        wake();
+        return waiter.result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        wake();
+    }
+
+    // cambios confirmados por otras instancias
+    @Scheduled(fixedDelayString = "${app.users.changes.poll-interval:PT2S}")
+    public void poll() {
+        wake();
+    }
+
+    @Scheduled(fixedDelayString = "${app.users.changes.tombstone-prune-interval:PT1H}")
+    @Transactional
+    public void pruneTombstones() {
+        Long through = tombstoneRepository.findMaxModSeqDeletedBefore(Instant.now().minus(tombstoneRetention));
+        if (through == null) {
+            return;
+        }
+        int deleted = tombstoneRepository.deleteThrough(through);
+        changeSequence.markPruned(through);
+        log.debug("Purgadas {} bajas hasta mod_seq {}", deleted, through);
+    }
+
+    // varias notificaciones seguidas (p.ej. un alta masiva) se atienden con una sola pasada
+    private void wake() {
+        if (!waiters.isEmpty() && wakeScheduled.compareAndSet(false, true)) {
+            executor.execute(this::checkWaiters);
+        }
+    }
+
+    private void checkWaiters() {
+        wakeScheduled.set(false);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                ChangeSequenceService.Position position = changeSequence.position();
+                for (Waiter waiter : waiters) {
+                    if (waiter.result.isDone() || waiter.since >= position.value()) {
+                        continue;
+                    }
+                    try {
+                        UserChangePage page = page(waiter.since, waiter.limit, position);
+                        if (!page.getChanges().isEmpty()) {
+                            waiter.result.complete(page);
+                        }
+                    } catch (ChangeCursorExpiredException e) {
+                        waiter.result.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // se reintenta en la siguiente notificacion o en poll()
+            log.warn("No se pudo comprobar el feed de cambios: {}", e.getMessage());
+        }
+    }
+
+    private UserChangePage page(long since, int limit, ChangeSequenceService.Position position) {
+        if (since > 0 && since < position.prunedThrough()) {
+            throw new ChangeCursorExpiredException(since, position.prunedThrough());
+        }
+        long until = position.value();
+        if (since >= until) {
+            return new UserChangePage(List.of(), since, false);
+        }
+        // una de mas en cada consulta para saber si hay mas cambios
+        List<UserChange> users = userRepository.findChanges(since, until, Limit.of(limit + 1));
+        // desde 0 no hay nada que borrar en el consumidor
+        List<UserChange> deleted = since == 0 ? List.of()
+                : tombstoneRepository.findChanges(since, until, Limit.of(limit + 1)).stream()
+                        .map(t -> UserChange.deleted(t.getUserId(), t.getModSeq()))
+                        .toList();
+
+        List<UserChange> changes = new ArrayList<>(Math.min(limit, users.size() + deleted.size()));
+        int u = 0;
+        int d = 0;
+        while (changes.size() < limit && (u < users.size() || d < deleted.size())) {
+            if (d >= deleted.size() || (u < users.size() && users.get(u).getModSeq() < deleted.get(d).getModSeq())) {
+                changes.add(users.get(u++));
+            } else {
+                changes.add(deleted.get(d++));
+            }
+        }
+        boolean hasMore = u < users.size() || d < deleted.size();
+        long next = hasMore ? changes.get(changes.size() - 1).getModSeq() : until;
+        return new UserChangePage(changes, next, hasMore);
+    }
+
+    private record Waiter(long since, int limit, CompletableFuture<UserChangePage> result) {
+    }
+}
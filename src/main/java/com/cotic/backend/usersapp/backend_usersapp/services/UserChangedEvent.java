@@ -0,0 +1,37 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+/**
+ * Evento publicado por {@link UserServiceImpl} dentro de la transaccion que
+ * crea, modifica o elimina un usuario.
+ */
+public class UserChangedEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final Long id;
+    private final String username;
+
+    public UserChangedEvent(Type type, Long id, String username) {
+        this.type = type;
+        this.id = id;
+        this.username = username;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return el username actual (null si se desconoce, p.ej. al eliminar)
+     */
+    public String getUsername() {
+        return username;
+    }
+}
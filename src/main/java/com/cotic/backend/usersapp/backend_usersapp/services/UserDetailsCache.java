@@ -0,0 +1,102 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache acotada de {@link UserDetails} por username para
+ * {@link JpaUserDetailsService}, con cache negativa (TTL corto) para los
+ * usernames que no existen.
+ * <p>
+ * Se invalida al confirmar la transaccion de cada {@link UserChangedEvent}.
+ * Siempre devuelve copias: el AuthenticationManager borra la contrasena del
+ * UserDetails que recibe ({@code eraseCredentials}).
+ * <p>
+ * Metricas en /actuator/metrics/cache.gets?tag=cache:users.details (y
+ * users.details.missing).
+ */
+@Component
+public class UserDetailsCache implements MeterBinder {
+
+    private final Cache<String, CachedUser> users;
+    private final Cache<String, Boolean> missing;
+
+    public UserDetailsCache(@Value("${app.security.user-cache.max-size:10000}") long maxSize,
+            @Value("${app.security.user-cache.ttl:PT5M}") Duration ttl,
+            @Value("${app.security.user-cache.missing-max-size:10000}") long missingMaxSize,
+            @Value("${app.security.user-cache.missing-ttl:PT30S}") Duration missingTtl) {
+        this.users = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+        this.missing = Caffeine.newBuilder().maximumSize(missingMaxSize).expireAfterWrite(missingTtl).recordStats()
+                .build();
+    }
+
+    /**
+     * @return una copia del UserDetails cacheado, o null
+     */
+    public UserDetails get(String username) {
+        CachedUser cached = users.getIfPresent(username);
+        return cached != null ? User.withUserDetails(cached.details()).build() : null;
+    }
+
+    /**
+     * @return true si se sabe (recientemente) que el username no existe
+     */
+    public boolean isKnownMissing(String username) {
+        return missing.getIfPresent(username) != null;
+    }
+
+    public void put(Long id, UserDetails details) {
+        users.put(details.getUsername(), new CachedUser(id, User.withUserDetails(details).build()));
+    }
+
+    public void putMissing(String username) {
+        missing.put(username, Boolean.TRUE);
+    }
+
+    public void invalidate(String username) {
+        users.invalidate(username);
+        missing.invalidate(username);
+    }
+
+    public void invalidateId(Long id) {
+        users.asMap().values().removeIf(u -> Objects.equals(u.id(), id));
+    }
+
+    public void invalidateAll() {
+        users.invalidateAll();
+        missing.invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        // un id recien creado no puede estar en cache (y invalidateId recorre toda la cache)
+        if (event.getId() != null && event.getType() != UserChangedEvent.Type.CREATED) {
+            invalidateId(event.getId());
+        }
+        if (event.getUsername() != null) {
+            invalidate(event.getUsername());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, users, "users.details");
+        CaffeineCacheMetrics.monitor(registry, missing, "users.details.missing");
+    }
+
+    private record CachedUser(Long id, UserDetails details) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserDto;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Exportacion completa del directorio de usuarios (GET /users/export).
+ * <p>
+ * Lee las filas con un cursor de la BD ({@link UserRepository#streamAfter})
+ * y escribe cada una en la respuesta segun llega, asi la memoria no depende
+ * del numero de usuarios. El orden es por id, de modo que un cliente que
+ * corta la descarga puede reanudarla con el ultimo id recibido.
+ * <p>
+ * Antes de la primera fila se lee, en la misma transaccion, la posicion de
+ * {@link ChangeSequenceService}: la exportacion incluye todos los cambios
+ * hasta ella, asi que sirve de cursor para seguir con
+ * {@code GET /users/changes} sin perder ninguno (los posteriores que ya
+ * salgan en la exportacion se reciben otra vez).
+ */
+@Service
+public class UserExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final ObjectWriter JSON_WRITER = new ObjectMapper().writerFor(UserDto.class);
+    private static final int FLUSH_EVERY = 500;
+
+    private final UserRepository repository;
+    private final ChangeSequenceService changeSequence;
+
+    @Autowired
+    public UserExportService(UserRepository repository, ChangeSequenceService changeSequence) {
+        this.repository = repository;
+        this.changeSequence = changeSequence;
+    }
+
+    /**
+     * Escribe los usuarios con id mayor que {@code after}. No cierra
+     * {@code out}.
+     *
+     * @param changesCursor recibe el cursor del feed de cambios antes de que
+     *                      se escriba nada en {@code out}
+     */
+    @Transactional(readOnly = true)
+    public void export(Long after, Format format, OutputStream out, LongConsumer changesCursor) throws IOException {
+        changesCursor.accept(changeSequence.position().value());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write("id,username,email,admin\n");
+        }
+        try (Stream<UserDto> users = repository.streamAfter(after != null ? after : 0L)) {
+            Iterator<UserDto> it = users.iterator();
+            int count = 0;
+            while (it.hasNext()) {
+                UserDto user = it.next();
+                if (format == Format.CSV) {
+                    writeCsv(writer, user);
+                } else {
+                    writer.write(JSON_WRITER.writeValueAsString(user));
+                    writer.write('\n');
+                }
+                if (++count % FLUSH_EVERY == 0) {
+                    writer.flush();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private static void writeCsv(Writer writer, UserDto user) throws IOException {
+        writer.write(String.valueOf(user.getId()));
+        writer.write(',');
+        writer.write(csv(user.getUsername()));
+        writer.write(',');
+        writer.write(csv(user.getEmail()));
+        writer.write(',');
+        writer.write(String.valueOf(user.isAdmin()));
+        writer.write('\n');
+    }
+
+    // RFC 4180: comillas si hay separadores, comillas o saltos de linea
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,267 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserDto;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.UserRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Indice en memoria para {@code GET /users/search}.
+ * <p>
+ * Los prefijos se buscan en dos mapas ordenados (username y email en
+ * minusculas) y las subcadenas de 3 o mas caracteres en un indice de
+ * trigramas: se toma la lista de ids mas corta de los trigramas de la
+ * consulta y se comprueba cada candidato. Ninguna busqueda consulta la base
+ * de datos ni recorre todos los usuarios salvo que la consulta sea muy comun.
+ * <p>
+ * Se construye al arrancar y se reconstruye periodicamente (recoge los
+ * cambios hechos por otras instancias). Entre medias, cada
+ * {@link UserChangedEvent} confirmado marca el usuario como pendiente y la
+ * siguiente busqueda lo relee por id antes de responder, asi que una busqueda
+ * ve siempre los cambios ya confirmados en esta instancia.
+ * <p>
+ * En la BD solo se usan los indices que ya existen: la clave primaria (relectura
+ * por id) y los de las restricciones unicas {@code uk_users_username} y
+ * {@code uk_users_email}. Una busqueda por subcadena no podria usar un indice
+ * B-tree, por eso se resuelve aqui y no con {@code LIKE '%q%'}.
+ */
+@Component
+@Lazy(false)
+public class UserSearchIndex implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    // orden de los resultados: prefijo de username, prefijo de email y luego
+    // subcadenas (primero en el username)
+    private static final int USERNAME_SUBSTRING = 0;
+    private static final int EMAIL_SUBSTRING = 1;
+
+    private static final int RELOAD_CHUNK = 1000;
+
+    private final UserRepository repository;
+    // id -> numero del ultimo cambio; se quita cuando ya se ha releido ese cambio
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicLong changes = new AtomicLong();
+
+    private volatile Index index;
+
+    @Autowired
+    public UserSearchIndex(UserRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @param query texto a buscar (sin distinguir mayusculas)
+     * @param limit maximo de resultados
+     * @return usuarios cuyo username o email empieza por {@code query} y,
+     *         si tiene 3 o mas caracteres, los que lo contienen
+     */
+    public List<UserDto> search(String query, int limit) {
+        String q = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        Index current = current();
+        Map<Long, UserDto> found = new LinkedHashMap<>();
+        collectPrefix(current.usernames, q, current, limit, found);
+        collectPrefix(current.emails, q, current, limit, found);
+        if (found.size() < limit && q.length() >= 3) {
+            collectSubstring(current, q, limit, found);
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.getId() != null) {
+            pending.put(event.getId(), changes.incrementAndGet());
+        }
+    }
+
+    // tras DataInitializer, que puede insertar los usuarios iniciales
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.users.search.rebuild-interval:PT10M}",
+            initialDelayString = "${app.users.search.rebuild-interval:PT10M}")
+    public synchronized void rebuild() {
+        Index rebuilt = new Index();
+        repository.findAllDtos().forEach(rebuilt::add);
+        index = rebuilt;
+        log.debug("Indice de busqueda de usuarios reconstruido: {} usuarios", rebuilt.users.size());
+    }
+
+    private Index current() {
+        if (index == null) {
+            synchronized (this) {
+                if (index == null) {
+                    rebuild();
+                }
+            }
+        }
+        if (!pending.isEmpty()) {
+            applyPending();
+        }
+        return index;
+    }
+
+    // relee por id (en lotes) los usuarios cambiados; los que ya no estan se quitan.
+    // Un id sigue en pending hasta que esta releido, asi que las busquedas
+    // concurrentes esperan en el monitor en lugar de responder con el dato viejo
+    private synchronized void applyPending() {
+        Map<Long, Long> seen = new LinkedHashMap<>(pending);
+        List<Long> ids = new ArrayList<>(seen.keySet());
+        Index current = index;
+        for (int from = 0; from < ids.size(); from += RELOAD_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + RELOAD_CHUNK));
+            List<UserDto> reloaded = repository.findDtosByIdIn(chunk);
+            chunk.forEach(current::remove);
+            reloaded.forEach(current::add);
+            // si cambio otra vez mientras se releia, se queda para la siguiente busqueda
+            chunk.forEach(id -> pending.remove(id, seen.get(id)));
+        }
+    }
+
+    private static void collectPrefix(NavigableMap<String, Long> keys, String q, Index current, int limit,
+            Map<Long, UserDto> found) {
+        // las claves son "valor\0id": las que empiezan por q van de q a q + MAX_VALUE
+        for (Long id : keys.subMap(q, true, q + Character.MAX_VALUE, false).values()) {
+            if (found.size() >= limit) {
+                return;
+            }
+            UserDto user = current.users.get(id);
+            if (user != null) {
+                found.putIfAbsent(id, user);
+            }
+        }
+    }
+
+    private static void collectSubstring(Index current, String q, int limit, Map<Long, UserDto> found) {
+        Set<Long> candidates = null;
+        for (String trigram : trigrams(q)) {
+            Set<Long> ids = current.trigrams.get(trigram);
+            if (ids == null) {
+                return;
+            }
+            if (candidates == null || ids.size() < candidates.size()) {
+                candidates = ids;
+            }
+        }
+        // los candidatos vienen sin orden: se ordenan todas las coincidencias y
+        // despues se corta en limit, para que el resultado no dependa del hash
+        List<Match> matches = new ArrayList<>();
+        for (Long id : candidates) {
+            UserDto user = current.users.get(id);
+            if (user == null || found.containsKey(id)) {
+                continue;
+            }
+            if (lower(user.getUsername()).contains(q)) {
+                matches.add(new Match(USERNAME_SUBSTRING, user));
+            } else if (lower(user.getEmail()).contains(q)) {
+                matches.add(new Match(EMAIL_SUBSTRING, user));
+            }
+        }
+        matches.sort(Comparator.comparingInt(Match::rank)
+                .thenComparing(m -> lower(m.user.getUsername())));
+        for (Match match : matches) {
+            if (found.size() >= limit) {
+                return;
+            }
+            found.putIfAbsent(match.user.getId(), match.user);
+        }
+    }
+
+    private static Set<String> trigrams(String value) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= value.length(); i++) {
+            trigrams.add(value.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static String key(String value, Long id) {
+        return lower(value) + '\0' + id;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("users.search.index.size", this, s -> s.index != null ? s.index.users.size() : 0)
+                .description("Usuarios en el indice de busqueda")
+                .register(registry);
+        Gauge.builder("users.search.index.pending", pending, Map::size)
+                .description("Usuarios cambiados pendientes de releer")
+                .register(registry);
+    }
+
+    private record Match(int rank, UserDto user) {
+    }
+
+    // las escrituras van bajo el monitor de UserSearchIndex; las lecturas no bloquean
+    private static final class Index {
+        private final Map<Long, UserDto> users = new ConcurrentHashMap<>();
+        private final NavigableMap<String, Long> usernames = new ConcurrentSkipListMap<>();
+        private final NavigableMap<String, Long> emails = new ConcurrentSkipListMap<>();
+        private final Map<String, Set<Long>> trigrams = new ConcurrentHashMap<>();
+
+        void add(UserDto user) {
+            Long id = user.getId();
+            users.put(id, user);
+            usernames.put(key(user.getUsername(), id), id);
+            emails.put(key(user.getEmail(), id), id);
+            for (String trigram : userTrigrams(user)) {
+                trigrams.computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+
+        void remove(Long id) {
+            UserDto user = users.remove(id);
+            if (user == null) {
+                return;
+            }
+            usernames.remove(key(user.getUsername(), id));
+            emails.remove(key(user.getEmail(), id));
+            for (String trigram : userTrigrams(user)) {
+                Set<Long> ids = trigrams.get(trigram);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        trigrams.remove(trigram);
+                    }
+                }
+            }
+        }
+
+        private static Set<String> userTrigrams(UserDto user) {
+            Set<String> trigrams = trigrams(lower(user.getUsername()));
+            trigrams.addAll(trigrams(lower(user.getEmail())));
+            return trigrams;
+        }
+    }
+}
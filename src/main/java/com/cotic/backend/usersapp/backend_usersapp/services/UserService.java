@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Optional;
 
 import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserDto;
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserPage;
 import com.cotic.backend.usersapp.backend_usersapp.models.entities.User;
 import com.cotic.backend.usersapp.backend_usersapp.models.request.UserRequest;
 
@@ -11,12 +12,43 @@ public interface UserService {
 
     List<UserDto> findAll();
 
+    /**
+     * Pagina por cursor: hasta {@code limit} usuarios con id mayor que
+     * {@code after}, ordenados por id. Los filtros null no se aplican.
+     *
+     * @param username prefijo del username (sin distinguir mayusculas)
+     * @param email    prefijo del email (sin distinguir mayusculas)
+     * @param admin    true/false para filtrar por rol ROLE_ADMIN
+     */
+    UserPage findPage(Long after, int limit, String username, String email, Boolean admin);
+
     Optional<UserDto> findById(Long id);
 
     UserDto save(User user);
 
     Optional<UserDto> update(UserRequest user, Long id);
 
-    void remove(Long id);
+    /**
+     * @param expectedVersion version que el cliente cree vigente (If-Match);
+     *                        null para no comprobarla
+     * @throws org.springframework.dao.OptimisticLockingFailureException
+     *         si la version no coincide
+     */
+    Optional<UserDto> update(UserRequest user, Long id, Long expectedVersion);
+
+    /**
+     * Version actual del usuario (su ETag), sin cargarlo.
+     */
+    Optional<Long> findVersion(Long id);
+
+    /**
+     * @return false si el usuario no existia
+     */
+    boolean remove(Long id);
+
+    /**
+     * Valida un lote de tokens. El resultado respeta el orden de entrada.
+     */
+    List<TokenValidationResult> validateTokens(List<String> tokens);
 
 }
@@ -1,64 +1,100 @@
 package com.cotic.backend.usersapp.backend_usersapp.services;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.cotic.backend.usersapp.backend_usersapp.models.IUser;
 import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserDto;
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserPage;
 import com.cotic.backend.usersapp.backend_usersapp.models.dto.mapper.DtoMapperUser;
 import com.cotic.backend.usersapp.backend_usersapp.models.entities.Role;
 import com.cotic.backend.usersapp.backend_usersapp.models.entities.User;
 import com.cotic.backend.usersapp.backend_usersapp.models.request.UserRequest;
-import com.cotic.backend.usersapp.backend_usersapp.repositories.RoleRepository;
-import com.cotic.backend.usersapp.backend_usersapp.auth.TokenJwtConfig;
-import com.cotic.backend.usersapp.backend_usersapp.auth.SimpleGrantedAuthorityJsonCreator;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.cotic.backend.usersapp.backend_usersapp.auth.JwtTokenCodec;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.security.SecurityException;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import java.util.Arrays;
+import org.springframework.security.core.GrantedAuthority;
 import com.cotic.backend.usersapp.backend_usersapp.repositories.UserRepository;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.UserTombstoneRepository;
 
 @Service
 public class UserServiceImpl implements UserService {
 
     private final UserRepository repo;
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
     private final PasswordEncoder passwordEncoder;
+    private final JwtTokenCodec tokenCodec;
+    private final TokenRevocationService revocationService;
+    private final ApplicationEventPublisher events;
+    private final int parallelValidationThreshold;
+    private final ChangeSequenceService changeSequence;
+    private final UserTombstoneRepository tombstones;
 
     @Autowired
-    public UserServiceImpl(UserRepository repo, RoleRepository roleRepository, PasswordEncoder passwordEncoder) {
+    public UserServiceImpl(UserRepository repo, RoleRegistry roleRegistry, PasswordEncoder passwordEncoder,
+            JwtTokenCodec tokenCodec, TokenRevocationService revocationService, ApplicationEventPublisher events,
+            @Value("${app.security.validate-tokens.parallel-threshold:64}") int parallelValidationThreshold,
+            ChangeSequenceService changeSequence, UserTombstoneRepository tombstones) {
         this.repo = repo;
-        this.roleRepository = roleRepository;
+        this.roleRegistry = roleRegistry;
         this.passwordEncoder = passwordEncoder;
+        this.tokenCodec = tokenCodec;
+        this.revocationService = revocationService;
+        this.events = events;
+        this.parallelValidationThreshold = parallelValidationThreshold;
+        this.changeSequence = changeSequence;
+        this.tombstones = tombstones;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<UserDto> findAll() {
-        List<User> users = (List<User>) repo.findAll();
-        return users
-                .stream()
-                .map(u -> DtoMapperUser.builder().setUser(u).build())
-                .toList();
+        return repo.findAllDtos();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserPage findPage(Long after, int limit, String username, String email, Boolean admin) {
+        // se pide una fila de mas para saber si hay pagina siguiente
+        List<UserDto> users = repo.findPage(after != null ? after : 0L, prefixPattern(username),
+                prefixPattern(email), admin, Limit.of(limit + 1));
+        boolean hasNext = users.size() > limit;
+        List<UserDto> items = hasNext ? users.subList(0, limit) : users;
+        return new UserPage(items, hasNext ? items.get(items.size() - 1).getId() : null);
+    }
+
+    private static String prefixPattern(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String escaped = value.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return escaped + "%";
     }
 
     @Override
     @Transactional(readOnly = true)
     public Optional<UserDto> findById(Long id) {
 
-        return repo.findById(id).map(u -> DtoMapperUser.builder().setUser(u).build());
+        return repo.findDtoById(id);
 
     }
 
@@ -68,48 +104,75 @@ public class UserServiceImpl implements UserService {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         user.setRoles(getRoles(user));
 
-        return DtoMapperUser.builder().setUser(repo.save(user)).build();
+        user.setModSeq(changeSequence.next());
+        User saved = repo.save(user);
+        events.publishEvent(new UserChangedEvent(UserChangedEvent.Type.CREATED, saved.getId(), saved.getUsername()));
+        return DtoMapperUser.builder().setUser(saved).build();
     }
 
     @Override
     @Transactional
-    public void remove(Long id) {
-        repo.deleteById(id);
+    public boolean remove(Long id) {
+        // sin filas borradas no se toca el contador: un DELETE de un id que no
+        // existe no gasta un valor ni espera por el bloqueo de change_sequence
+        if (repo.deleteUserById(id) == 0) {
+            return false;
+        }
+        tombstones.insert(id, changeSequence.next(), Instant.now());
+        events.publishEvent(new UserChangedEvent(UserChangedEvent.Type.DELETED, id, null));
+        return true;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Long> findVersion(Long id) {
+        return repo.findVersionById(id);
     }
 
     @Override
     @Transactional
     public Optional<UserDto> update(UserRequest user, Long id) {
-        Optional<User> o = repo.findById(id);
-        User userOptional = null;
-        if (o.isPresent()) {
-            User userdb = o.orElseThrow();
-            userdb.setRoles(getRoles(user));
-            userdb.setUsername(user.getUsername());
-            userdb.setEmail(user.getEmail());
-            userOptional = repo.save(userdb);
+        return update(user, id, null);
+    }
+
+    @Override
+    @Transactional
+    public Optional<UserDto> update(UserRequest user, Long id, Long expectedVersion) {
+        // sin leer la entidad: el numero de filas dice si existe (y si la version coincide).
+        // Como en remove, el contador solo se toca si hubo cambio
+        if (repo.updateProfile(id, user.getUsername(), user.getEmail(), expectedVersion) == 0) {
+            if (expectedVersion == null) {
+                return Optional.empty();
+            }
+            Optional<Long> current = repo.findVersionById(id);
+            if (!current.isPresent()) {
+                return Optional.empty();
+            }
+            throw new OptimisticLockingFailureException(
+                    "El usuario " + id + " fue modificado (version " + current.orElseThrow() + ")");
         }
-        return Optional.ofNullable(DtoMapperUser.builder().setUser(userOptional).build());
+        repo.updateModSeq(id, changeSequence.next());
+        List<Long> roleIds = getRoles(user).stream().map(Role::getId).toList();
+        repo.deleteRolesNotIn(id, roleIds);
+        repo.insertMissingRoles(id, roleIds);
+        events.publishEvent(new UserChangedEvent(UserChangedEvent.Type.UPDATED, id, user.getUsername()));
+        return repo.findDtoById(id);
     }
 
     /**
      * Valida un token JWT usando la clave secreta configurada.
      * 
      * @param token el token JWT (puede incluir o no el prefijo 'Bearer ')
-     * @return true si el token es válido, false si es inválido o expirado
+     * @return true si el token es válido, false si es inválido, expirado o
+     *         revocado
      */
     public boolean isTokenValid(String token) {
         if (token == null || token.isBlank())
             return false;
-        String rawToken = token.startsWith(TokenJwtConfig.PREFIX_TOKEN)
-                ? token.substring(TokenJwtConfig.PREFIX_TOKEN.length())
-                : token;
+        String rawToken = JwtTokenCodec.stripPrefix(token);
         try {
-            Jwts.parser()
-                    .verifyWith(TokenJwtConfig.SECRET_KEY)
-                    .build()
-                    .parseSignedClaims(rawToken);
-            return true;
+            Claims claims = tokenCodec.parseClaims(rawToken);
+            return !revocationService.isRevoked(claims.getId(), claims.getSubject(), claims.getIssuedAt());
         } catch (SecurityException | MalformedJwtException | UnsupportedJwtException | IllegalArgumentException e) {
             // Token inválido
             return false;
@@ -131,21 +194,18 @@ public class UserServiceImpl implements UserService {
             result.setValid(false);
             return result;
         }
-        String rawToken = token.startsWith(TokenJwtConfig.PREFIX_TOKEN)
-                ? token.substring(TokenJwtConfig.PREFIX_TOKEN.length())
-                : token;
+        String rawToken = JwtTokenCodec.stripPrefix(token);
         try {
-            Claims claims = Jwts.parser().verifyWith(TokenJwtConfig.SECRET_KEY).build().parseSignedClaims(rawToken)
-                    .getPayload();
+            Claims claims = tokenCodec.parseClaims(rawToken);
             String username = claims.getSubject();
-            Object authoritiesClaims = claims.get("authorities");
+            if (revocationService.isRevoked(claims.getId(), username, claims.getIssuedAt())) {
+                result.setValid(false);
+                return result;
+            }
 
-            List<String> roles = Arrays
-                    .asList(new ObjectMapper()
-                            .addMixIn(SimpleGrantedAuthority.class, SimpleGrantedAuthorityJsonCreator.class)
-                            .readValue(authoritiesClaims.toString().getBytes(), SimpleGrantedAuthority[].class))
+            List<String> roles = tokenCodec.readAuthorities(claims)
                     .stream()
-                    .map(SimpleGrantedAuthority::getAuthority)
+                    .map(GrantedAuthority::getAuthority)
                     .toList();
 
             result.setValid(true);
@@ -158,8 +218,25 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    /**
+     * Valida un lote de tokens con la misma logica que
+     * {@link #validateTokenDetails(String)}. A partir de
+     * {@code app.security.validate-tokens.parallel-threshold} tokens la
+     * verificacion se reparte entre los nucleos disponibles.
+     *
+     * @param tokens tokens (con o sin prefijo Bearer )
+     * @return un TokenValidationResult por token, en el mismo orden
+     */
+    @Override
+    public List<TokenValidationResult> validateTokens(List<String> tokens) {
+        if (tokens.size() >= parallelValidationThreshold) {
+            return tokens.parallelStream().map(this::validateTokenDetails).toList();
+        }
+        return tokens.stream().map(this::validateTokenDetails).toList();
+    }
+
     private List<Role> getRoles(IUser user) {
-        Optional<Role> ou = roleRepository.findByName("ROLE_USER");
+        Optional<Role> ou = roleRegistry.findByName("ROLE_USER");
 
         List<Role> roles = new ArrayList<>();
         if (ou.isPresent()) {
@@ -167,7 +244,7 @@ public class UserServiceImpl implements UserService {
         }
 
         if (user.isAdmin()) {
-            Optional<Role> oa = roleRepository.findByName("ROLE_ADMIN");
+            Optional<Role> oa = roleRegistry.findByName("ROLE_ADMIN");
             if (oa.isPresent()) {
                 roles.add(oa.orElseThrow());
             }
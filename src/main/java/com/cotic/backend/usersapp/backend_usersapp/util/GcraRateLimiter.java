@@ -0,0 +1,90 @@
+package com.cotic.backend.usersapp.backend_usersapp.util;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limitador por clave con GCRA (generic cell rate algorithm): un token bucket
+ * reducido a un unico {@link AtomicLong} por clave, el instante teorico de
+ * llegada (TAT), actualizado con compare-and-set y sin bloqueos.
+ * <p>
+ * Un bucket cuyo TAT ya paso esta lleno, asi que borrarlo no cambia el
+ * resultado: {@link #evictIdle()} libera esas claves sin perder estado. Si aun
+ * asi se alcanza {@code maxKeys}, las claves nuevas no se limitan hasta la
+ * siguiente limpieza (se prefiere no rechazar a clientes legitimos).
+ * <p>
+ * Con el mapa lleno, una clave nueva lanza la limpieza como mucho una vez
+ * cada {@link #FULL_EVICTION_INTERVAL} entre todos los hilos: una rafaga de
+ * IPs o usernames distintos no paga un recorrido completo del mapa por
+ * peticion.
+ */
+public class GcraRateLimiter {
+
+    static final Duration FULL_EVICTION_INTERVAL = Duration.ofSeconds(1);
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    // instante (nanoTime) a partir del cual se admite otra limpieza con el mapa lleno
+    private final AtomicLong nextFullEviction = new AtomicLong(System.nanoTime());
+    private final long emissionInterval;
+    private final long tolerance;
+    private final int maxKeys;
+
+    /**
+     * @param rate    peticiones permitidas por {@code period} en regimen
+     *                constante
+     * @param period  periodo de {@code rate}
+     * @param burst   peticiones que se admiten seguidas con el bucket lleno
+     * @param maxKeys numero maximo de claves en memoria
+     */
+    public GcraRateLimiter(int rate, Duration period, int burst, int maxKeys) {
+        this.emissionInterval = Math.max(1, period.toNanos() / Math.max(1, rate));
+        this.tolerance = emissionInterval * Math.max(1, burst);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * @return 0 si se admite la peticion, o los nanosegundos que faltan para
+     *         que se admita
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong tat = buckets.get(key);
+        if (tat == null) {
+            if (buckets.size() >= maxKeys) {
+                long allowedAt = nextFullEviction.get();
+                if (now - allowedAt >= 0
+                        && nextFullEviction.compareAndSet(allowedAt, now + FULL_EVICTION_INTERVAL.toNanos())) {
+                    evictIdle();
+                }
+                if (buckets.size() >= maxKeys) {
+                    return 0;
+                }
+            }
+            tat = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + emissionInterval;
+            long wait = next - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Borra los buckets llenos (sin peticiones recientes).
+     */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(tat -> tat.get() - now <= 0);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+}
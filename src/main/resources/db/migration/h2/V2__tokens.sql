@@ -0,0 +1,31 @@
+-- Revocacion de tokens (TokenRevocationService) y refresh tokens (RefreshTokenService)
+create table revoked_tokens (
+    jti varchar(64) not null,
+    username varchar(255),
+    revoked_at timestamp(6) with time zone,
+    expires_at timestamp(6) with time zone not null,
+    primary key (jti)
+);
+create index idx_revoked_tokens_expires_at on revoked_tokens (expires_at);
+
+create table user_token_revocations (
+    username varchar(255) not null,
+    revoked_before timestamp(6) with time zone not null,
+    expires_at timestamp(6) with time zone not null,
+    primary key (username)
+);
+
+create table refresh_tokens (
+    id bigint generated by default as identity,
+    token_hash varchar(64) not null,
+    username varchar(255) not null,
+    family_id varchar(36) not null,
+    created_at timestamp(6) with time zone,
+    expires_at timestamp(6) with time zone not null,
+    used boolean not null,
+    revoked boolean not null,
+    primary key (id),
+    constraint uk_refresh_tokens_token_hash unique (token_hash)
+);
+create index idx_refresh_tokens_family on refresh_tokens (family_id);
+create index idx_refresh_tokens_username on refresh_tokens (username);
@@ -0,0 +1,35 @@
+-- Version (ETag y bloqueo optimista) y posicion en el feed de cambios de cada usuario.
+-- Los usuarios existentes quedan con mod_seq 0: ChangeSequenceService.backfill() les da valor.
+alter table users add column version bigint default 0;
+alter table users add column mod_seq bigint default 0;
+create index idx_users_mod_seq on users (mod_seq);
+
+create table change_sequence (
+    name varchar(32) not null,
+    seq_value bigint not null,
+    pruned_through bigint not null,
+    primary key (name)
+);
+
+create table user_tombstones (
+    user_id bigint not null,
+    mod_seq bigint not null,
+    deleted_at timestamp(6) with time zone not null,
+    primary key (user_id)
+);
+create index idx_user_tombstones_mod_seq on user_tombstones (mod_seq);
+
+-- eventos pendientes de publicar (UserOutboxWriter / UserOutboxDrainer)
+create table user_outbox (
+    id bigint generated by default as identity,
+    user_id bigint not null,
+    type varchar(16) not null,
+    username varchar(255),
+    created_at timestamp(6) with time zone not null,
+    primary key (id)
+);
+
+create table outbox_lock (
+    name varchar(32) not null,
+    primary key (name)
+);
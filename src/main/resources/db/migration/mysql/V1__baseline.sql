@@ -0,0 +1,25 @@
+-- Esquema inicial: usuarios y roles
+create table roles (
+    id bigint not null auto_increment,
+    name varchar(255),
+    primary key (id),
+    constraint uk_roles_name unique (name)
+) engine=InnoDB;
+
+create table users (
+    id bigint not null auto_increment,
+    username varchar(8) not null,
+    email varchar(255) not null,
+    password varchar(255) not null,
+    primary key (id),
+    constraint uk_users_username unique (username),
+    constraint uk_users_email unique (email)
+) engine=InnoDB;
+
+create table users_roles (
+    user_id bigint not null,
+    role_id bigint not null,
+    constraint uk_users_roles unique (user_id, role_id),
+    constraint fk_users_roles_user foreign key (user_id) references users (id),
+    constraint fk_users_roles_role foreign key (role_id) references roles (id)
+) engine=InnoDB;
@@ -0,0 +1,31 @@
+-- Revocacion de tokens (TokenRevocationService) y refresh tokens (RefreshTokenService)
+create table revoked_tokens (
+    jti varchar(64) not null,
+    username varchar(255),
+    revoked_at datetime(6),
+    expires_at datetime(6) not null,
+    primary key (jti)
+) engine=InnoDB;
+create index idx_revoked_tokens_expires_at on revoked_tokens (expires_at);
+
+create table user_token_revocations (
+    username varchar(255) not null,
+    revoked_before datetime(6) not null,
+    expires_at datetime(6) not null,
+    primary key (username)
+) engine=InnoDB;
+
+create table refresh_tokens (
+    id bigint not null auto_increment,
+    token_hash varchar(64) not null,
+    username varchar(255) not null,
+    family_id varchar(36) not null,
+    created_at datetime(6),
+    expires_at datetime(6) not null,
+    used bit not null,
+    revoked bit not null,
+    primary key (id),
+    constraint uk_refresh_tokens_token_hash unique (token_hash)
+) engine=InnoDB;
+create index idx_refresh_tokens_family on refresh_tokens (family_id);
+create index idx_refresh_tokens_username on refresh_tokens (username);
@@ -0,0 +1,87 @@
+package com.cotic.backend.usersapp.backend_usersapp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.cotic.backend.usersapp.backend_usersapp.repositories.UserRepository;
+import com.cotic.backend.usersapp.backend_usersapp.services.UserChangedEvent;
+
+/**
+ * Perfil prod: beans perezosos salvo los que tienen tareas programadas (si
+ * no, nunca se ejecutarian), sin datos iniciales, sin springdoc y sin
+ * outbox (no hay destino real). Arranca contra una BD vacia: el esquema lo
+ * crean las migraciones.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:prodprofile",
+        "app.jwt.keystore.allow-ephemeral=true" })
+@ActiveProfiles("prod")
+@AutoConfigureMockMvc
+class ProdProfileStartupTest {
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void scheduledBeans_AreEager() {
+        List<String> notCreated = new ArrayList<>();
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            Class<?> type = beanFactory.getType(name, false);
+            if (type == null || !type.getName().startsWith(BackendUsersappApplication.class.getPackageName())) {
+                continue;
+            }
+            boolean scheduled = !MethodIntrospector.selectMethods(type,
+                    (MethodIntrospector.MetadataLookup<Scheduled>) m -> AnnotatedElementUtils
+                            .findMergedAnnotation(m, Scheduled.class))
+                    .isEmpty();
+            if (scheduled && !beanFactory.containsSingleton(name)) {
+                notCreated.add(name);
+            }
+        }
+        assertEquals(List.of(), notCreated);
+        assertTrue(beanFactory.containsSingleton("hibernateLoadListeners"));
+        // sin uso todavia: se crea en la primera exportacion
+        assertFalse(beanFactory.containsSingleton("userExportService"));
+    }
+
+    @Test
+    void noSeedAndNoApiDocs() throws Exception {
+        assertEquals(0, userRepository.count());
+        mvc.perform(get("/api-docs")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void outboxDisabled_NoRowsWritten() {
+        events.publishEvent(new UserChangedEvent(UserChangedEvent.Type.UPDATED, 1L, "admin"));
+        assertEquals(0, jdbc.queryForObject("select count(*) from user_outbox", Long.class));
+    }
+}
@@ -0,0 +1,36 @@
+package com.cotic.backend.usersapp.backend_usersapp.auth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class CalibratedBCryptPasswordEncoderTest {
+
+    private static String hash(int cost) {
+        return String.format("$2a$%02d$", cost) + "oKjH4iWyDhq.9E25pj0daOefgjmvTGncEeUJIpbfQZIIQHtzxQHqa";
+    }
+
+    @Test
+    void upgradeEncoding_OnlyWellBelowTargetOrFloor() {
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(12, 10);
+
+        assertTrue(encoder.upgradeEncoding(hash(9)));
+        assertTrue(encoder.upgradeEncoding(hash(10)));
+        // un punto de diferencia entre nodos calibrados no provoca rehash
+        assertFalse(encoder.upgradeEncoding(hash(11)));
+        assertFalse(encoder.upgradeEncoding(hash(12)));
+        assertFalse(encoder.upgradeEncoding(hash(13)));
+        assertFalse(encoder.upgradeEncoding("{noop}123456"));
+        assertFalse(encoder.upgradeEncoding(null));
+    }
+
+    @Test
+    void upgradeEncoding_NeverDowngrades() {
+        // nodo lento: calibra 10 y no rebaja los hashes de coste 12 de otros nodos
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(10, 10);
+
+        assertFalse(encoder.upgradeEncoding(hash(11)));
+        assertFalse(encoder.upgradeEncoding(hash(12)));
+        assertTrue(encoder.upgradeEncoding(hash(8)));
+    }
+}
@@ -0,0 +1,96 @@
+package com.cotic.backend.usersapp.backend_usersapp.auth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+class JwtKeyRingTest {
+
+    @TempDir
+    Path dir;
+
+    private static void genkey(Path keystore, String alias) throws Exception {
+        genkey(keystore, alias, "-keyalg", "EC", "-groupname", "secp256r1", "-sigalg", "SHA256withECDSA");
+    }
+
+    private static void genkey(Path keystore, String alias, String... keyOptions) throws Exception {
+        String keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+        List<String> command = new ArrayList<>(List.of(keytool, "-genkeypair", "-alias", alias));
+        command.addAll(List.of(keyOptions));
+        command.addAll(List.of("-dname", "CN=test", "-validity", "1", "-storetype", "PKCS12", "-keystore",
+                keystore.toString(), "-storepass", "changeit"));
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .start();
+        assertEquals(0, process.waitFor(), () -> new String(readAll(process)));
+    }
+
+    private static byte[] readAll(Process process) {
+        try {
+            return process.getInputStream().readAllBytes();
+        } catch (java.io.IOException e) {
+            return new byte[0];
+        }
+    }
+
+    private JwtKeyRing ring(Path keystore) {
+        return new JwtKeyRing(new DefaultResourceLoader(), "file:" + keystore, "changeit", "PKCS12", "", false);
+    }
+
+    @Test
+    void withoutKeystore_FailsUnlessEphemeralAllowed() {
+        assertThrows(IllegalStateException.class,
+                () -> new JwtKeyRing(new DefaultResourceLoader(), "", "", "PKCS12", "", false));
+
+        JwtKeyRing ephemeral = new JwtKeyRing(new DefaultResourceLoader(), "", "", "PKCS12", "", true);
+        assertTrue(ephemeral.signingKey().kid().startsWith("ephemeral-"));
+    }
+
+    @Test
+    void rsaKey_FailsWithClearError() throws Exception {
+        Path keystore = dir.resolve("rsa.p12");
+        genkey(keystore, "k1");
+        genkey(keystore, "rsa1", "-keyalg", "RSA", "-keysize", "2048", "-sigalg", "SHA256withRSA");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> ring(keystore));
+        assertTrue(e.getMessage().contains("rsa1"), e::getMessage);
+        assertTrue(e.getMessage().contains("RSA"), e::getMessage);
+    }
+
+    @Test
+    void version_ChangesWhenKeyUnderSameAliasIsReplaced() throws Exception {
+        Path keystore = dir.resolve("jwt-keys.p12");
+        genkey(keystore, "k1");
+        JwtKeyRing ring = ring(keystore);
+        List<Object> events = new ArrayList<>();
+        ring.setApplicationEventPublisher(events::add);
+        String before = ring.version();
+
+        // mismo contenido con otra fecha: se relee pero las claves no cambian
+        File file = keystore.toFile();
+        file.setLastModified(file.lastModified() + 1_000);
+        ring.reloadIfModified();
+        assertTrue(events.isEmpty());
+        assertEquals(before, ring(keystore).version());
+
+        Path replaced = dir.resolve("replaced.p12");
+        genkey(replaced, "k1");
+        Files.move(replaced, keystore, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        file.setLastModified(file.lastModified() + 2_000);
+        ring.reloadIfModified();
+
+        assertEquals("k1", ring.signingKey().kid());
+        assertNotEquals(before, ring.version());
+        assertEquals(1, events.size());
+        assertEquals(ring.version(), ((JwtKeysReloadedEvent) events.get(0)).getVersion());
+    }
+}
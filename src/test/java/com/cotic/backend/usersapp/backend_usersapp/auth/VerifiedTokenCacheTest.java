@@ -0,0 +1,89 @@
+package com.cotic.backend.usersapp.backend_usersapp.auth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.cotic.backend.usersapp.backend_usersapp.auth.VerifiedTokenCache.VerifiedToken;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class VerifiedTokenCacheTest {
+
+    private static VerifiedToken verified(long expiresInMillis) {
+        long now = System.currentTimeMillis();
+        return new VerifiedToken("admin", List.of(new SimpleGrantedAuthority("ROLE_ADMIN")), "jti-1",
+                new Date(now), new Date(now + expiresInMillis));
+    }
+
+    @Test
+    void hit_ReturnsFreshAuthenticationPerRequest() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, Duration.ofMinutes(5));
+        cache.put("token-a", verified(60_000));
+
+        VerifiedToken first = cache.get("token-a");
+        assertNotNull(first);
+        assertNull(cache.get("token-b"));
+
+        // lo que una peticion haga con su autenticacion no llega a la siguiente
+        first.authentication().setDetails("peticion 1");
+        first.authentication().eraseCredentials();
+        assertNotSame(first.authentication(), cache.get("token-a").authentication());
+        assertNull(cache.get("token-a").authentication().getDetails());
+        assertEquals("admin", cache.get("token-a").authentication().getName());
+        assertThrows(UnsupportedOperationException.class, () -> first.authorities().clear());
+    }
+
+    @Test
+    void expiresAtTokenExp() throws InterruptedException {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, Duration.ofMinutes(5));
+        cache.put("expired", verified(-1_000));
+        assertNull(cache.get("expired"));
+
+        cache.put("short", verified(300));
+        assertNotNull(cache.get("short"));
+        Thread.sleep(600);
+        assertNull(cache.get("short"));
+    }
+
+    @Test
+    void expiresAtMaxTtlBeforeExp() throws InterruptedException {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, Duration.ofMillis(300));
+        cache.put("token", verified(60_000));
+        assertNotNull(cache.get("token"));
+        Thread.sleep(600);
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void keysReloaded_EmptiesCache() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, Duration.ofMinutes(5));
+        cache.put("token", verified(60_000));
+
+        cache.onKeysReloaded(new JwtKeysReloadedEvent("v2"));
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void metrics_HitsAndMisses() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, Duration.ofMinutes(5));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get("token");
+        cache.put("token", verified(60_000));
+        cache.get("token");
+        cache.get("token");
+
+        assertEquals(2, registry.get("cache.gets").tags("cache", VerifiedTokenCache.CACHE_NAME, "result", "hit")
+                .functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tags("cache", VerifiedTokenCache.CACHE_NAME, "result", "miss")
+                .functionCounter().count());
+        assertEquals(1, cache.size());
+    }
+}
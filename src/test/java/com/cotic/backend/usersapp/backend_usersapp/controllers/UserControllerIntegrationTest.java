@@ -2,7 +2,14 @@ package com.cotic.backend.usersapp.backend_usersapp.controllers;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.MethodOrderer;
@@ -20,9 +27,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserChangePage;
 import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserDto;
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.UserPage;
 import com.cotic.backend.usersapp.backend_usersapp.models.entities.User;
 import com.cotic.backend.usersapp.backend_usersapp.models.request.UserRequest;
+import com.cotic.backend.usersapp.backend_usersapp.outbox.InMemoryUserEventSink;
+import com.cotic.backend.usersapp.backend_usersapp.outbox.UserOutboxDrainer;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -33,6 +44,12 @@ class UserControllerIntegrationTest {
     @Autowired
     private TestRestTemplate client;
 
+    @Autowired
+    private UserOutboxDrainer outboxDrainer;
+
+    @Autowired
+    private InMemoryUserEventSink eventSink;
+
     private ObjectMapper objectMapper;
 
     @BeforeEach
@@ -70,7 +87,7 @@ class UserControllerIntegrationTest {
         // SpringSecurityConfig: .requestMatchers(HttpMethod.GET, "/users").permitAll()
         // So it should be public.
 
-        ResponseEntity<UserDto[]> response = client.getForEntity("/users", UserDto[].class);
+        ResponseEntity<UserDto[]> response = client.getForEntity("/users?all=true", UserDto[].class);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         UserDto[] users = response.getBody();
@@ -78,6 +95,30 @@ class UserControllerIntegrationTest {
         assertTrue(users.length >= 2); // default users
     }
 
+    @Test
+    @Order(2)
+    void testListUsers_KeysetPagination() {
+        ResponseEntity<UserPage> first = client.getForEntity("/users?limit=2", UserPage.class);
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertEquals(2, first.getBody().getItems().size());
+        assertEquals(2L, first.getBody().getNext());
+
+        UserPage second = client.getForEntity("/users?limit=2&after=" + first.getBody().getNext(), UserPage.class)
+                .getBody();
+        assertEquals(3L, second.getItems().get(0).getId());
+        assertNull(second.getNext());
+
+        UserPage admins = client.getForEntity("/users?admin=true", UserPage.class).getBody();
+        assertEquals(1, admins.getItems().size());
+        assertEquals("admin", admins.getItems().get(0).getUsername());
+
+        UserPage byName = client.getForEntity("/users?username=JANE", UserPage.class).getBody();
+        assertEquals(1, byName.getItems().size());
+        assertEquals("janedoe", byName.getItems().get(0).getUsername());
+
+        assertEquals(HttpStatus.BAD_REQUEST, client.getForEntity("/users?limit=0", Map.class).getStatusCode());
+    }
+
     @Test
     @Order(3)
     void testCreateUser_Admin() throws Exception {
@@ -234,7 +275,7 @@ class UserControllerIntegrationTest {
 
         ResponseEntity<UserDto> response = client.exchange("/users/99999", HttpMethod.PUT, request, UserDto.class);
 
-        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
     @Test
@@ -275,4 +316,356 @@ class UserControllerIntegrationTest {
         assertTrue(body.containsKey("password"));
         assertTrue(body.containsKey("email"));
     }
+
+    @Test
+    @Order(13)
+    void testValidateTokens_Batch() throws Exception {
+        String token = login("admin", "123456");
+
+        HttpEntity<java.util.List<String>> request = new HttpEntity<>(
+                java.util.List.of("Bearer " + token, "invalid.token.garbage", token));
+        ResponseEntity<Map[]> response = client.postForEntity("/users/validate-tokens", request, Map[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        Map[] body = response.getBody();
+        assertNotNull(body);
+        assertEquals(3, body.length);
+        assertTrue((Boolean) body[0].get("valid"));
+        assertEquals("admin", body[0].get("username"));
+        assertFalse((Boolean) body[1].get("valid"));
+        assertTrue((Boolean) body[2].get("valid"));
+    }
+
+    @Test
+    @Order(14)
+    void testJwks_Public() {
+        ResponseEntity<Map> response = client.getForEntity("/.well-known/jwks.json", Map.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getHeaders().getCacheControl());
+        assertNotNull(response.getHeaders().getETag());
+        java.util.List<Map> keys = (java.util.List<Map>) response.getBody().get("keys");
+        assertFalse(keys.isEmpty());
+        assertNotNull(keys.get(0).get("kid"));
+        assertEquals("EC", keys.get(0).get("kty"));
+        assertNull(keys.get(0).get("d"));
+    }
+
+    @Test
+    @Order(15)
+    void testLogout_RevokesToken() throws Exception {
+        String token = login("admin", "123456");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        HttpEntity<Void> request = new HttpEntity<>(headers);
+
+        assertEquals(HttpStatus.OK, client.exchange("/users/1", HttpMethod.GET, request, UserDto.class)
+                .getStatusCode());
+
+        ResponseEntity<Void> logout = client.exchange("/auth/logout", HttpMethod.POST, request, Void.class);
+        assertEquals(HttpStatus.NO_CONTENT, logout.getStatusCode());
+
+        ResponseEntity<String> after = client.exchange("/users/1", HttpMethod.GET, request, String.class);
+        assertEquals(HttpStatus.UNAUTHORIZED, after.getStatusCode());
+
+        UserController.TokenRequest tokenRequest = new UserController.TokenRequest();
+        tokenRequest.setToken(token);
+        ResponseEntity<Map> validation = client.postForEntity("/users/validate-token",
+                new HttpEntity<>(tokenRequest), Map.class);
+        assertFalse((Boolean) validation.getBody().get("valid"));
+    }
+
+    @Test
+    @Order(16)
+    void testRefreshToken_Rotation() throws Exception {
+        User loginUser = new User();
+        loginUser.setUsername("admin");
+        loginUser.setPassword("123456");
+        Map<String, String> login = objectMapper.readValue(
+                client.postForEntity("/login", new HttpEntity<>(loginUser), String.class).getBody(), Map.class);
+        String refreshToken = login.get("refreshToken");
+        assertNotNull(refreshToken);
+
+        ResponseEntity<Map> refreshed = client.postForEntity("/auth/refresh",
+                new HttpEntity<>(Map.of("refreshToken", refreshToken)), Map.class);
+        assertEquals(HttpStatus.OK, refreshed.getStatusCode());
+        String newToken = (String) refreshed.getBody().get("token");
+        String newRefreshToken = (String) refreshed.getBody().get("refreshToken");
+        assertNotNull(newToken);
+        assertNotEquals(refreshToken, newRefreshToken);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(newToken);
+        assertEquals(HttpStatus.OK, client.exchange("/users/1", HttpMethod.GET, new HttpEntity<>(headers),
+                UserDto.class).getStatusCode());
+
+        // reutilizar el refresh token ya rotado revoca toda la familia
+        ResponseEntity<Map> reused = client.postForEntity("/auth/refresh",
+                new HttpEntity<>(Map.of("refreshToken", refreshToken)), Map.class);
+        assertEquals(HttpStatus.UNAUTHORIZED, reused.getStatusCode());
+        ResponseEntity<Map> revoked = client.postForEntity("/auth/refresh",
+                new HttpEntity<>(Map.of("refreshToken", newRefreshToken)), Map.class);
+        assertEquals(HttpStatus.UNAUTHORIZED, revoked.getStatusCode());
+    }
+
+    @Test
+    @Order(17)
+    void testLogin_RateLimitedByUsername() {
+        User loginUser = new User();
+        loginUser.setUsername("intruso");
+        loginUser.setPassword("incorrecta");
+
+        ResponseEntity<String> response = null;
+        for (int i = 0; i < 25; i++) {
+            response = client.postForEntity("/login", new HttpEntity<>(loginUser), String.class);
+            if (response.getStatusCode() != HttpStatus.UNAUTHORIZED) {
+                break;
+            }
+        }
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertNotNull(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    @Order(18)
+    void testExportUsers_NdjsonAndGzipCsv() throws Exception {
+        String token = login("admin", "123456");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+
+        ResponseEntity<String> ndjson = client.exchange("/users/export?after=1", HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.OK, ndjson.getStatusCode());
+        String[] lines = ndjson.getBody().split("\n");
+        assertTrue(lines.length >= 2);
+        assertEquals(2L, objectMapper.readValue(lines[0], UserDto.class).getId());
+        // cursor para seguir con el feed de cambios tras la descarga
+        String cursor = ndjson.getHeaders().getFirst("X-Changes-Cursor");
+        assertNotNull(cursor);
+        assertEquals(HttpStatus.OK, client.exchange("/users/changes?since=" + cursor, HttpMethod.GET,
+                new HttpEntity<>(headers), UserChangePage.class).getStatusCode());
+
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        ResponseEntity<byte[]> csv = client.exchange("/users/export?format=csv", HttpMethod.GET,
+                new HttpEntity<>(headers), byte[].class);
+        assertEquals(HttpStatus.OK, csv.getStatusCode());
+        assertEquals("gzip", csv.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        String text = new String(new GZIPInputStream(new ByteArrayInputStream(csv.getBody())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("id,username,email,admin\n1,admin,"));
+
+        assertEquals(HttpStatus.FORBIDDEN, client.getForEntity("/users/export", String.class).getStatusCode());
+    }
+
+    @Test
+    @Order(19)
+    void testRoleRegistry_ActuatorRefresh() throws Exception {
+        assertEquals(HttpStatus.FORBIDDEN, client.postForEntity("/actuator/roles", null, String.class)
+                .getStatusCode());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(login("admin", "123456"));
+        ResponseEntity<Map> roles = client.exchange("/actuator/roles", HttpMethod.POST, new HttpEntity<>(headers),
+                Map.class);
+        assertEquals(HttpStatus.OK, roles.getStatusCode());
+        assertTrue(roles.getBody().containsKey("ROLE_ADMIN"));
+        assertTrue(roles.getBody().containsKey("ROLE_USER"));
+    }
+
+    @Test
+    @Order(20)
+    void testBulkImport_NdjsonWithRowErrors() throws Exception {
+        String token = login("admin", "123456");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_NDJSON);
+        String body = "{\"username\":\"bulk1\",\"email\":\"bulk1@correo.com\",\"password\":\"12345\"}\n"
+                + "{\"username\":\"bulk2\",\"email\":\"bulk2@correo.com\",\"password\":\"12345\",\"admin\":true}\n"
+                + "{\"username\":\"admin\",\"email\":\"otro@correo.com\",\"password\":\"12345\"}\n"
+                + "{\"username\":\"bulk1\",\"email\":\"bulk3@correo.com\",\"password\":\"12345\"}\n"
+                + "{\"username\":\"x\",\"email\":\"no-es-email\",\"password\":\"\"}\n";
+
+        ResponseEntity<Map> response = client.exchange("/users/bulk", HttpMethod.POST,
+                new HttpEntity<>(body, headers), Map.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().get("created"));
+        assertEquals(3, response.getBody().get("failed"));
+
+        String userToken = login("bulk2", "12345");
+        assertNotNull(userToken);
+        UserPage admins = client.getForEntity("/users?admin=true&username=bulk", UserPage.class).getBody();
+        assertEquals(1, admins.getItems().size());
+        assertEquals("bulk2", admins.getItems().get(0).getUsername());
+    }
+
+    @Test
+    @Order(21)
+    void testConditionalRequests_ETag() throws Exception {
+        String token = login("admin", "123456");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        Long id = client.getForEntity("/users?username=bulk1", UserPage.class).getBody().getItems().get(0).getId();
+
+        ResponseEntity<UserDto> first = client.exchange("/users/" + id, HttpMethod.GET, new HttpEntity<>(headers),
+                UserDto.class);
+        String eTag = first.getHeaders().getETag();
+        assertEquals("\"0\"", eTag);
+        headers.setIfNoneMatch(eTag);
+        assertEquals(HttpStatus.NOT_MODIFIED, client.exchange("/users/" + id, HttpMethod.GET,
+                new HttpEntity<>(headers), String.class).getStatusCode());
+
+        HttpHeaders listHeaders = new HttpHeaders();
+        listHeaders.setIfNoneMatch(client.getForEntity("/users", String.class).getHeaders().getETag());
+        assertEquals(HttpStatus.NOT_MODIFIED, client.exchange("/users", HttpMethod.GET,
+                new HttpEntity<>(listHeaders), String.class).getStatusCode());
+
+        UserRequest updateReq = new UserRequest();
+        updateReq.setUsername("bulk1");
+        updateReq.setEmail("bulk1b@correo.com");
+        updateReq.setAdmin(false);
+        HttpHeaders putHeaders = new HttpHeaders();
+        putHeaders.setBearerAuth(token);
+        putHeaders.setContentType(MediaType.APPLICATION_JSON);
+        putHeaders.setIfMatch("\"7\"");
+        assertEquals(HttpStatus.PRECONDITION_FAILED, client.exchange("/users/" + id, HttpMethod.PUT,
+                new HttpEntity<>(updateReq, putHeaders), String.class).getStatusCode());
+
+        putHeaders.setIfMatch(eTag);
+        ResponseEntity<UserDto> updated = client.exchange("/users/" + id, HttpMethod.PUT,
+                new HttpEntity<>(updateReq, putHeaders), UserDto.class);
+        assertEquals(HttpStatus.CREATED, updated.getStatusCode());
+        assertEquals("\"1\"", updated.getHeaders().getETag());
+        assertEquals(HttpStatus.OK, client.exchange("/users/" + id, HttpMethod.GET, new HttpEntity<>(headers),
+                String.class).getStatusCode());
+    }
+
+    @Test
+    @Order(22)
+    void testSearch_PrefixThenSubstring() throws Exception {
+        String token = login("admin", "123456");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+
+        ResponseEntity<UserDto[]> prefix = client.exchange("/users/search?q=BULK", HttpMethod.GET,
+                new HttpEntity<>(headers), UserDto[].class);
+        assertEquals(HttpStatus.OK, prefix.getStatusCode());
+        assertEquals(List.of("bulk1", "bulk2"), Arrays.stream(prefix.getBody()).map(UserDto::getUsername).toList());
+
+        // el email de bulk1 cambio en la prueba de ETag: el indice lo ve sin reconstruirse
+        UserDto[] substring = client.exchange("/users/search?q=1b@corr", HttpMethod.GET,
+                new HttpEntity<>(headers), UserDto[].class).getBody();
+        assertEquals(1, substring.length);
+        assertEquals("bulk1", substring[0].getUsername());
+
+        // se ordena antes de cortar: siempre el primero por username
+        UserDto[] limited = client.exchange("/users/search?q=ulk&limit=1", HttpMethod.GET,
+                new HttpEntity<>(headers), UserDto[].class).getBody();
+        assertEquals(1, limited.length);
+        assertEquals("bulk1", limited[0].getUsername());
+        assertEquals(HttpStatus.BAD_REQUEST, client.exchange("/users/search?q=a&limit=0", HttpMethod.GET,
+                new HttpEntity<>(headers), String.class).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, client.getForEntity("/users/search?q=a", String.class).getStatusCode());
+    }
+
+    @Test
+    @Order(23)
+    void testOutbox_EventsInOrderPerUser() throws Exception {
+        String token = login("admin", "123456");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(token);
+
+        User newUser = new User();
+        newUser.setUsername("outbox1");
+        newUser.setPassword("password");
+        newUser.setEmail("outbox1@correo.com");
+        Long id = client.exchange("/users", HttpMethod.POST, new HttpEntity<>(newUser, headers), User.class)
+                .getBody().getId();
+        UserRequest updateReq = new UserRequest();
+        updateReq.setUsername("outbox2");
+        updateReq.setEmail("outbox1@correo.com");
+        client.exchange("/users/" + id, HttpMethod.PUT, new HttpEntity<>(updateReq, headers), UserDto.class);
+        client.exchange("/users/" + id, HttpMethod.DELETE, new HttpEntity<>(headers), Void.class);
+
+        outboxDrainer.drain();
+        List<String> types = eventSink.events().stream()
+                .filter(e -> e.getUserId().equals(id))
+                .map(e -> e.getType() + ":" + e.getUsername())
+                .toList();
+        assertEquals(List.of("CREATED:outbox1", "UPDATED:outbox2", "DELETED:null"), types);
+    }
+
+    @Test
+    @Order(24)
+    void testChanges_IncrementalWithTombstonesAndLongPoll() throws Exception {
+        String token = login("admin", "123456");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(token);
+        HttpEntity<Void> get = new HttpEntity<>(headers);
+
+        UserChangePage all = client.exchange("/users/changes?limit=500", HttpMethod.GET, get, UserChangePage.class)
+                .getBody();
+        assertFalse(all.isHasMore());
+        assertTrue(all.getChanges().stream().anyMatch(c -> c.getUsername() != null && c.getUsername().equals("admin")));
+        long cursor = all.getNext();
+
+        User newUser = new User();
+        newUser.setUsername("feed1");
+        newUser.setPassword("password");
+        newUser.setEmail("feed1@correo.com");
+        Long id = client.exchange("/users", HttpMethod.POST, new HttpEntity<>(newUser, headers), User.class)
+                .getBody().getId();
+        UserChangePage created = client.exchange("/users/changes?since=" + cursor, HttpMethod.GET, get,
+                UserChangePage.class).getBody();
+        assertEquals(1, created.getChanges().size());
+        assertEquals(id, created.getChanges().get(0).getId());
+        assertFalse(created.getChanges().get(0).isDeleted());
+
+        // la peticion queda esperando hasta que se confirma la baja
+        long since = created.getNext();
+        CompletableFuture<UserChangePage> waiting = CompletableFuture.supplyAsync(() -> client.exchange(
+                "/users/changes?wait=20&since=" + since, HttpMethod.GET, get, UserChangePage.class).getBody());
+        Thread.sleep(300);
+        assertFalse(waiting.isDone());
+        client.exchange("/users/" + id, HttpMethod.DELETE, get, Void.class);
+        UserChangePage deleted = waiting.get(10, TimeUnit.SECONDS);
+        assertEquals(1, deleted.getChanges().size());
+        assertEquals(id, deleted.getChanges().get(0).getId());
+        assertTrue(deleted.getChanges().get(0).isDeleted());
+
+        assertEquals(HttpStatus.BAD_REQUEST, client.exchange("/users/changes?limit=0", HttpMethod.GET, get,
+                String.class).getStatusCode());
+    }
+
+    @Test
+    @Order(25)
+    void testRequestSqlMetrics_PerEndpoint() throws Exception {
+        String token = login("admin", "123456");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        assertEquals(HttpStatus.OK, client.exchange("/users/2", HttpMethod.GET, new HttpEntity<>(headers),
+                UserDto.class).getStatusCode());
+
+        // el uri es el patron de la ruta, no la URL con el id
+        ResponseEntity<Map> statements = client.getForEntity(
+                "/actuator/metrics/request.sql.statements?tag=method:GET&tag=uri:{uri}", Map.class, "/users/{id}");
+        assertEquals(HttpStatus.OK, statements.getStatusCode());
+        List<Map<String, Object>> measurements = (List<Map<String, Object>>) statements.getBody().get("measurements");
+        double count = measurements.stream().filter(m -> m.get("statistic").equals("COUNT"))
+                .mapToDouble(m -> ((Number) m.get("value")).doubleValue()).sum();
+        double total = measurements.stream().filter(m -> m.get("statistic").equals("TOTAL"))
+                .mapToDouble(m -> ((Number) m.get("value")).doubleValue()).sum();
+        assertTrue(count >= 1);
+        assertTrue(total >= count);
+
+        assertEquals(HttpStatus.OK, client.getForEntity(
+                "/actuator/metrics/request.connection.acquire?tag=uri:{uri}", Map.class, "/users/{id}")
+                .getStatusCode());
+
+        // el login no pasa por Spring MVC pero tiene su propio uri
+        assertEquals(HttpStatus.OK, client.getForEntity(
+                "/actuator/metrics/request.sql.statements?tag=method:POST&tag=uri:{uri}", Map.class, "/login")
+                .getStatusCode());
+    }
 }
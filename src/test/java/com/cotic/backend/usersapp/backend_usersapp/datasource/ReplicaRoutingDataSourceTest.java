@@ -0,0 +1,95 @@
+package com.cotic.backend.usersapp.backend_usersapp.datasource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Enrutado primaria/replica con dos bases H2 en memoria: cada una tiene una
+ * tabla {@code marker} con su nombre, asi cada consulta dice a cual fue.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final String SELECT_MARKER = "select name from marker";
+
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate writeTx;
+    private TransactionTemplate readTx;
+
+    private static DataSource h2(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate init = new JdbcTemplate(dataSource);
+        init.execute("create table if not exists marker (name varchar(20))");
+        init.execute("delete from marker");
+        init.update("insert into marker (name) values (?)", name);
+        return dataSource;
+    }
+
+    private void setup(DataSource replica) {
+        routing = new ReplicaRoutingDataSource(h2("primary"), List.of(replica), Duration.ofSeconds(30));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbc = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager txManager = new DataSourceTransactionManager(dataSource);
+        writeTx = new TransactionTemplate(txManager);
+        readTx = new TransactionTemplate(txManager);
+        readTx.setReadOnly(true);
+    }
+
+    @BeforeEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterEach
+    void clearContextAfter() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplica() {
+        setup(h2("replica"));
+        assertEquals("replica", readTx.execute(s -> jdbc.queryForObject(SELECT_MARKER, String.class)));
+        assertEquals("primary", writeTx.execute(s -> jdbc.queryForObject(SELECT_MARKER, String.class)));
+        assertEquals("primary", jdbc.queryForObject(SELECT_MARKER, String.class));
+    }
+
+    @Test
+    void readYourWritesAfterCommit() {
+        setup(h2("replica"));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("admin", null, AuthorityUtils.createAuthorityList("ROLE_ADMIN")));
+        writeTx.executeWithoutResult(s -> jdbc.update("update marker set name = 'primary'"));
+        assertEquals("primary", readTx.execute(s -> jdbc.queryForObject(SELECT_MARKER, String.class)));
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("janedoe", null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+        assertEquals("replica", readTx.execute(s -> jdbc.queryForObject(SELECT_MARKER, String.class)));
+    }
+
+    @Test
+    void failsOverToPrimaryWhenReplicaIsDown() {
+        setup(new DriverManagerDataSource("jdbc:h2:mem:caida;IFEXISTS=TRUE", "sa", ""));
+        assertEquals("primary", readTx.execute(s -> jdbc.queryForObject(SELECT_MARKER, String.class)));
+        assertEquals(0, routing.healthyReplicas());
+
+        routing.checkReplicas();
+        assertEquals(0, routing.healthyReplicas());
+    }
+}
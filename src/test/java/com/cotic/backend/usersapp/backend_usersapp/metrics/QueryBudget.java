@@ -0,0 +1,79 @@
+package com.cotic.backend.usersapp.backend_usersapp.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Presupuesto de SQL por peticion para tests con MockMvc: se queda con el
+ * {@link RequestSqlStats} que abre {@link RequestSqlMetricsFilter} (va
+ * justo dentro de el) y falla si la peticion supera las sentencias o
+ * entidades declaradas, mostrando el desglose de SQL.
+ * <p>
+ * Uso: {@code @Import(QueryBudget.class)} en un {@code @SpringBootTest} con
+ * {@code @AutoConfigureMockMvc}; MockMvc ejecuta la peticion en el hilo del
+ * test, asi que lo medido es exactamente esa peticion.
+ */
+@TestComponent
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class QueryBudget extends OncePerRequestFilter {
+
+    private volatile RequestSqlStats last;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            last = RequestSqlStats.current();
+        }
+    }
+
+    /**
+     * Ejecuta la peticion y comprueba que no pasa de {@code maxStatements}
+     * sentencias SQL.
+     */
+    public ResultActions perform(MockMvc mvc, RequestBuilder request, int maxStatements) throws Exception {
+        return perform(mvc, request, maxStatements, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Como {@link #perform(MockMvc, RequestBuilder, int)}, limitando ademas
+     * las entidades que carga Hibernate (las lecturas de DTO no cargan
+     * ninguna).
+     */
+    public ResultActions perform(MockMvc mvc, RequestBuilder request, int maxStatements, int maxEntities)
+            throws Exception {
+        last = null;
+        ResultActions result = mvc.perform(request);
+        RequestSqlStats stats = last;
+        assertNotNull(stats, "La peticion no paso por RequestSqlMetricsFilter");
+        String uri = result.andReturn().getRequest().getRequestURI();
+        assertTrue(stats.getStatements() <= maxStatements, () -> uri + " supera el presupuesto de "
+                + maxStatements + " sentencias: " + stats.describe(10));
+        assertTrue(stats.getEntitiesLoaded() <= maxEntities, () -> uri + " supera el presupuesto de "
+                + maxEntities + " entidades: " + stats.describe(10));
+        return result;
+    }
+
+    /**
+     * Lo medido en la ultima peticion.
+     */
+    public RequestSqlStats last() {
+        return last;
+    }
+}
@@ -0,0 +1,192 @@
+package com.cotic.backend.usersapp.backend_usersapp.metrics;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.entities.User;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.RoleRepository;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.UserRepository;
+import com.cotic.backend.usersapp.backend_usersapp.services.UserDetailsCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Presupuesto de sentencias SQL por endpoint con miles de usuarios: un N+1
+ * o una lectura de mas en cualquiera de ellos hace fallar el test. Los
+ * presupuestos no dependen del numero de usuarios ni del tamano de pagina.
+ * <p>
+ * Las cuentas son las del peor caso (caches de UserDetails y de tokens
+ * vacias): si un cambio las reduce, bajar aqui el presupuesto.
+ * <p>
+ * Solo se mide el hilo de la peticion: la validacion de tokens en lote no
+ * se reparte entre hilos aqui, porque en los del ForkJoinPool no hay
+ * {@link RequestSqlStats} y su SQL no contaria.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:querybudget",
+        "app.security.validate-tokens.parallel-threshold=100000" })
+@AutoConfigureMockMvc
+@Import(QueryBudget.class)
+class QueryBudgetTest {
+
+    private static final int USERS = 5000;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private QueryBudget budget;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    // JUnit crea una instancia por test: el token se comparte entre todas
+    private static String token;
+
+    @BeforeEach
+    void setup() throws Exception {
+        if (userRepository.count() < USERS) {
+            List<Object[]> users = new ArrayList<>(USERS);
+            for (int i = 0; i < USERS; i++) {
+                users.add(new Object[] { "qbu" + i, "qbu" + i + "@correo.com" });
+            }
+            // la contrasena no se usa: los logins son con admin
+            jdbc.batchUpdate("insert into users (username, email, password, mod_seq) values (?, ?, 'x', 0)", users);
+            jdbc.update("insert into users_roles (user_id, role_id) select u.id, r.id from users u, roles r"
+                    + " where u.username like 'qbu%' and (r.name = 'ROLE_USER'"
+                    + " or (r.name = 'ROLE_ADMIN' and mod(u.id, 10) = 0))");
+        }
+        userDetailsCache.invalidateAll();
+        if (token == null) {
+            token = login();
+        }
+    }
+
+    @Test
+    void list_OneStatementPerPage() throws Exception {
+        budget.perform(mvc, get("/users").param("limit", "500"), 1, 0)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(500));
+        budget.perform(mvc, get("/users").param("limit", "500").param("after", "2500").param("admin", "true"), 1, 0)
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void listAll_OneStatement() throws Exception {
+        budget.perform(mvc, get("/users").param("all", "true"), 1, 0)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(greaterThan(USERS)))
+                // el flag admin sale de la misma consulta
+                .andExpect(jsonPath("$[?(@.username == 'admin')].admin").value(true))
+                .andExpect(jsonPath("$[?(@.username == 'qbu10')].admin").value(false));
+    }
+
+    @Test
+    void show_OneStatement() throws Exception {
+        budget.perform(mvc, get("/users/{id}", 2).header(HttpHeaders.AUTHORIZATION, "Bearer " + token), 1, 0)
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void create_WithinBudget() throws Exception {
+        User user = new User();
+        user.setUsername("qbcreate");
+        user.setPassword("password");
+        user.setEmail("qbcreate@correo.com");
+        // usuario, su rol, secuencia de cambios (update y lectura) y outbox
+        budget.perform(mvc, post("/users").header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(MAPPER.writeValueAsString(user)), 5, 0)
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void update_WithoutLoadingEntities() throws Exception {
+        Long id = userRepository.findByUsername("qbu10").orElseThrow().getId();
+        String body = MAPPER.writeValueAsString(Map.of("username", "qbu10", "email", "qbu10b@correo.com",
+                "admin", false));
+        // update, roles por diferencia, secuencia de cambios (y su mod_seq), outbox y lectura del DTO
+        budget.perform(mvc, put("/users/{id}", id).header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body), 8, 0)
+                .andExpect(status().isCreated());
+
+        // un id que no existe: solo el update sin filas afectadas, sin secuencia de cambios ni lecturas
+        budget.perform(mvc, put("/users/{id}", 999_999).header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body), 1, 0)
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void delete_WithinBudget() throws Exception {
+        User user = new User();
+        user.setUsername("qbdelete");
+        user.setEmail("qbdelete@correo.com");
+        user.setPassword("x");
+        user.setRoles(List.of(roleRepository.findByName("ROLE_USER").orElseThrow()));
+        Long id = userRepository.save(user).getId();
+
+        // users_roles, users, secuencia de cambios, baja y outbox
+        budget.perform(mvc, delete("/users/{id}", id).header(HttpHeaders.AUTHORIZATION, "Bearer " + token), 6, 0)
+                .andExpect(status().isNoContent());
+
+        // un id que no existe: solo el delete, sin secuencia de cambios
+        budget.perform(mvc, delete("/users/{id}", id).header(HttpHeaders.AUTHORIZATION, "Bearer " + token), 2, 0)
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void login_WithinBudget() throws Exception {
+        login();
+    }
+
+    @Test
+    void validateTokens_IndependentOfBatchSize() throws Exception {
+        List<String> tokens = new ArrayList<>(Collections.nCopies(100, "Bearer " + token));
+        tokens.add("no-es-un-token");
+        budget.perform(mvc, post("/users/validate-tokens").contentType(MediaType.APPLICATION_JSON)
+                .content(MAPPER.writeValueAsString(tokens)), 0)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(101));
+    }
+
+    // usuario con sus roles (3 entidades), alta del refresh token y rehash si el coste guardado queda por debajo
+    private String login() throws Exception {
+        String response = budget.perform(mvc, post("/login").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"admin\",\"password\":\"123456\"}"), 3, 3)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String accessToken = (String) MAPPER.readValue(response, Map.class).get("token");
+        assertNotNull(accessToken);
+        return accessToken;
+    }
+}
@@ -0,0 +1,101 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cotic.backend.usersapp.backend_usersapp.auth.JwtTokenCodec;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.RevokedTokenRepository;
+import com.cotic.backend.usersapp.backend_usersapp.repositories.UserTokenRevocationRepository;
+
+class TokenRevocationServiceTest {
+
+    private final RevokedTokenRepository revokedTokens = mock(RevokedTokenRepository.class);
+    private final UserTokenRevocationRepository userRevocations = mock(UserTokenRevocationRepository.class);
+    private TokenRevocationService service;
+
+    @BeforeEach
+    void setUp() {
+        when(userRevocations.findByExpiresAtAfter(any())).thenReturn(List.of());
+        // sin cache de confirmaciones: el token revocado solo se detecta si esta en el filtro
+        service = new TokenRevocationService(revokedTokens, userRevocations, mock(RefreshTokenService.class),
+                mock(JwtTokenCodec.class), new TransactionTemplate(mock(PlatformTransactionManager.class)), 0.01,
+                Duration.ZERO);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+
+    @Test
+    void revoke_NotVisibleUntilCommit() {
+        Date exp = new Date(System.currentTimeMillis() + 60_000);
+        service.revoke("jti-1", "admin", exp);
+        assertFalse(service.isRevoked("jti-1", "admin", new Date()));
+
+        when(revokedTokens.existsById("jti-1")).thenReturn(true);
+        commit();
+        assertTrue(service.isRevoked("jti-1", "admin", new Date()));
+    }
+
+    @Test
+    void rebuild_QueryBeforeCommitAndSwapAfter_KeepsRevokedJti() {
+        Date exp = new Date(System.currentTimeMillis() + 60_000);
+        service.revoke("jti-1", "admin", exp);
+        when(revokedTokens.existsById("jti-1")).thenReturn(true);
+        // la consulta del rebuild no ve la fila y el commit (con su afterCommit)
+        // termina antes de que el rebuild sustituya el filtro
+        when(revokedTokens.findActiveJtis(any())).thenAnswer(invocation -> {
+            commit();
+            return List.of();
+        });
+
+        service.rebuild();
+
+        assertTrue(service.isRevoked("jti-1", "admin", new Date()));
+    }
+
+    @Test
+    void revokeAllForUser_NotVisibleUntilCommit() {
+        service.revokeAllForUser("admin");
+        assertFalse(service.isRevoked(null, "admin", new Date(System.currentTimeMillis() - 60_000)));
+
+        commit();
+        assertTrue(service.isRevoked(null, "admin", new Date(System.currentTimeMillis() - 60_000)));
+        assertFalse(service.isRevoked(null, "johndoe", new Date(System.currentTimeMillis() - 60_000)));
+    }
+
+    @Test
+    void start_LoadsFilterOrFailsStartup() {
+        when(revokedTokens.findActiveJtis(any())).thenReturn(List.of("jti-1"));
+        when(revokedTokens.existsById("jti-1")).thenReturn(true);
+        service.start();
+        assertTrue(service.isRunning());
+        assertTrue(service.isRevoked("jti-1", "admin", new Date()));
+
+        when(revokedTokens.findActiveJtis(any())).thenThrow(new IllegalStateException("BD no disponible"));
+        assertThrows(IllegalStateException.class, () -> service.start());
+    }
+}
@@ -0,0 +1,67 @@
+package com.cotic.backend.usersapp.backend_usersapp.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cotic.backend.usersapp.backend_usersapp.models.dto.BulkImportResult;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validator;
+
+class UserBulkImportServiceTest {
+
+    private static final String ROWS = "{\"username\":\"bulka\",\"email\":\"a@correo.com\",\"password\":\"12345\"}\n"
+            + "{\"username\":\"bulkb\",\"email\":\"b@correo.com\",\"password\":\"12345\"}\n"
+            + "{\"username\":\"bulkc\",\"email\":\"c@correo.com\",\"password\":\"12345\"}\n";
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final NamedParameterJdbcTemplate namedJdbc = mock(NamedParameterJdbcTemplate.class);
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private UserBulkImportService service;
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void maxDurationExceeded_StopsBeforeNextBatchAndReportsNextRow() throws Exception {
+        service = new UserBulkImportService(jdbc, namedJdbc, mock(TransactionTemplate.class), passwordEncoder,
+                mock(Validator.class), mock(RoleRegistry.class), mock(ApplicationEventPublisher.class),
+                mock(EntityManagerFactory.class), mock(ChangeSequenceService.class), 2, 100, Duration.ZERO, 0);
+
+        BulkImportResult result = service.importUsers(new ByteArrayInputStream(ROWS.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(0, result.getNextRow());
+        assertNotNull(result.getError());
+        assertEquals(0, result.getCreated());
+        assertTrue(result.getResults().isEmpty());
+        verifyNoInteractions(jdbc, namedJdbc, passwordEncoder);
+    }
+
+    @Test
+    void maxRowsExceeded_ReportsNextRow() throws Exception {
+        service = new UserBulkImportService(jdbc, namedJdbc, mock(TransactionTemplate.class), passwordEncoder,
+                mock(Validator.class), mock(RoleRegistry.class), mock(ApplicationEventPublisher.class),
+                mock(EntityManagerFactory.class), mock(ChangeSequenceService.class), 500, 0, Duration.ofMinutes(1),
+                0);
+
+        BulkImportResult result = service.importUsers(new ByteArrayInputStream(ROWS.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(0, result.getNextRow());
+        assertNotNull(result.getError());
+        verifyNoInteractions(jdbc, namedJdbc, passwordEncoder);
+    }
+}
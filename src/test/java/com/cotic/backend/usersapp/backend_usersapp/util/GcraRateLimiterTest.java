@@ -0,0 +1,38 @@
+package com.cotic.backend.usersapp.backend_usersapp.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class GcraRateLimiterTest {
+
+    @Test
+    void burstThenLimited() {
+        GcraRateLimiter limiter = new GcraRateLimiter(1, Duration.ofMinutes(1), 2, 100);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+        assertEquals(0, limiter.tryAcquire("b"));
+    }
+
+    @Test
+    void fullMap_EvictsAtMostOncePerInterval() throws Exception {
+        // 1 ms por peticion: los buckets quedan llenos (inactivos) enseguida
+        GcraRateLimiter limiter = new GcraRateLimiter(1000, Duration.ofSeconds(1), 1, 2);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        Thread.sleep(10);
+
+        // mapa lleno: la primera clave nueva limpia los inactivos
+        assertEquals(0, limiter.tryAcquire("c"));
+        assertEquals(1, limiter.size());
+        limiter.tryAcquire("d");
+        Thread.sleep(10);
+
+        // dentro del intervalo no se vuelve a recorrer el mapa: la clave no se limita ni se guarda
+        assertEquals(0, limiter.tryAcquire("e"));
+        assertEquals(2, limiter.size());
+    }
+}